@@ -0,0 +1,81 @@
+package org.zalando.nakadiproducer.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+
+/**
+ * Payloads and event log entries resembling typical business events, in a given (approximate) serialized size.
+ */
+public final class BenchmarkPayloads {
+
+    private static final ObjectMapper OBJECT_MAPPER = objectMapper();
+
+    private BenchmarkPayloads() {
+    }
+
+    public static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .registerModules(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * Creates a payload whose JSON form has (at least) roughly the given number of bytes. It consists of some
+     * fixed fields and a list of line items, similar to an order.
+     */
+    public static Order payload(int id, int approximateSize) {
+        List<Item> items = new ArrayList<>();
+        Order order = new Order("order-" + id, "CUSTOMER-" + (id % 1000), "CREATED", Instant.EPOCH, items);
+        int size = serializedSize(order);
+        for (int i = 0; size < approximateSize; i++) {
+            Item item = new Item("SKU-" + id + "-" + i, "Some article with a reasonably long name " + i,
+                    1 + i % 5, 1999 + i, "EUR");
+            items.add(item);
+            size += serializedSize(item) + 1;
+        }
+        return order;
+    }
+
+    /**
+     * Creates an (uncompressed) event log entry, as it would be loaded from the database for sending.
+     */
+    public static EventLog eventLog(int id, String eventType, int approximateSize) {
+        return EventLog.builder()
+                .id(id)
+                .eventType(eventType)
+                .eventBodyData(json(payload(id, approximateSize)))
+                .flowId("flow-id-" + id)
+                .created(Instant.now())
+                .lastModified(Instant.now())
+                .lockedBy("benchmark")
+                .lockedUntil(Instant.now().plusSeconds(3600))
+                .compactionKey("order-" + id)
+                .build();
+    }
+
+    public static String json(Object payload) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int serializedSize(Object payload) {
+        return json(payload).length();
+    }
+
+    public record Order(String orderNumber, String customerNumber, String status, Instant createdAt,
+                        List<Item> items) {
+    }
+
+    public record Item(String sku, String name, int quantity, int priceInCents, String currency) {
+    }
+}
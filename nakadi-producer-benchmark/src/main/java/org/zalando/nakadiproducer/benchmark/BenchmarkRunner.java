@@ -0,0 +1,29 @@
+package org.zalando.nakadiproducer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks (all, or those selected by the usual JMH command line options) with the GC profiler, which
+ * reports the allocation rate and bytes allocated per operation in addition to the time per operation.
+ * <p>
+ * {@code java -jar nakadi-producer-benchmark/target/benchmarks.jar [JMH options]}
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include("org\\.zalando\\.nakadiproducer\\..*Benchmark");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadiproducer.benchmark.BenchmarkPayloads;
+import org.zalando.nakadiproducer.benchmark.BenchmarkPayloads.Order;
+import org.zalando.nakadiproducer.eventlog.CompactionKeyExtractor;
+
+/**
+ * Extracting the compaction key with the extractor joined by {@link EventLogWriterImpl#joinCompactors(List)} for
+ * one event type. Only the last one of the joined extractors handles the payload, which is the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactionKeyExtractorBenchmark {
+
+    private static final String EVENT_TYPE = "order.order-created";
+
+    @Param({"1", "2", "4"})
+    int extractorCount;
+
+    private CompactionKeyExtractor extractor;
+    private Object payload;
+
+    @Setup
+    public void setUp() {
+        List<CompactionKeyExtractor> extractors = new ArrayList<>();
+        for (int i = 1; i < extractorCount; i++) {
+            extractors.add(CompactionKeyExtractor.of(EVENT_TYPE, String.class, String::toString));
+        }
+        extractors.add(CompactionKeyExtractor.of(EVENT_TYPE, Order.class, Order::orderNumber));
+        extractor = EventLogWriterImpl.joinCompactors(extractors);
+        payload = BenchmarkPayloads.payload(1, 256);
+    }
+
+    @Benchmark
+    public String getKey() {
+        return extractor.getKeyOrNull(payload);
+    }
+}
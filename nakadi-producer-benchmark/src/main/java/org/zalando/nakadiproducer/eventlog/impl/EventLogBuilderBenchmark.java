@@ -0,0 +1,63 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadiproducer.benchmark.BenchmarkPayloads;
+import org.zalando.nakadiproducer.eventlog.EidGeneratorStrategy;
+import org.zalando.nakadiproducer.flowid.FlowIdComponent;
+
+/**
+ * Building the event log entry for one fired event, i.e. serializing (and maybe compressing) its payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventLogBuilderBenchmark {
+
+    private static final String EVENT_TYPE = "order.order-created";
+
+    @Param({"256", "4096", "65536"})
+    int payloadSize;
+
+    @Param({"false", "true"})
+    boolean compressed;
+
+    private EventLogBuilderImpl eventLogBuilder;
+    private Object payload;
+
+    @Setup
+    public void setUp() {
+        FlowIdComponent flowIdComponent = new FlowIdComponent() {
+            @Override
+            public String getXFlowIdValue() {
+                return "flow-id";
+            }
+
+            @Override
+            public void startTraceIfNoneExists() {
+            }
+        };
+        eventLogBuilder = new EventLogBuilderImpl(BenchmarkPayloads.objectMapper(), flowIdComponent,
+                EidGeneratorStrategy.noop(), compressed ? new EventBodyCompressor() : null);
+        payload = BenchmarkPayloads.payload(1, payloadSize);
+    }
+
+    @Benchmark
+    public EventLog buildEventLog() {
+        return eventLogBuilder.buildEventLog(EVENT_TYPE, payload, "order-1");
+    }
+}
@@ -0,0 +1,63 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zalando.nakadiproducer.benchmark.BenchmarkPayloads;
+import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+
+/**
+ * Batching the events of one transmission run ({@value #EVENT_COUNT} events of three interleaved event types),
+ * reported per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBatcherBenchmark {
+
+    private static final int EVENT_COUNT = 1000;
+    private static final String[] EVENT_TYPES = {"order.order-created", "order.order-updated", "order.order-deleted"};
+
+    @Param({"256", "4096", "65536"})
+    int payloadSize;
+
+    private List<EventLog> eventLogs;
+    private List<NakadiEvent> nakadiEvents;
+
+    @Setup
+    public void setUp() {
+        eventLogs = new ArrayList<>();
+        nakadiEvents = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            eventLogs.add(BenchmarkPayloads.eventLog(i, EVENT_TYPES[i % EVENT_TYPES.length], payloadSize));
+            nakadiEvents.add(new NakadiEvent());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_COUNT)
+    public void pushEventsAndFinish(Blackhole blackhole) {
+        EventBatcher eventBatcher = new EventBatcher(blackhole::consume);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            eventBatcher.pushEvent(eventLogs.get(i), nakadiEvents.get(i));
+        }
+        eventBatcher.finish();
+    }
+}
@@ -0,0 +1,72 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadiproducer.benchmark.BenchmarkPayloads;
+import org.zalando.nakadiproducer.eventlog.impl.EventBodyCompressor;
+import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+
+/**
+ * Converting a loaded event log entry into its Nakadi form, in the different body handling modes.
+ * As the conversion replaces a compressed body by the decompressed one, each invocation works on a (shallow)
+ * copy of the entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapToNakadiEventBenchmark {
+
+    private static final String EVENT_TYPE = "order.order-created";
+
+    @Param({"256", "4096", "65536"})
+    int payloadSize;
+
+    /**
+     * {@code parse}: parse and serialize again, {@code passthrough}: embed the body as-is,
+     * {@code validated}: embed the body as-is after checking its syntax.
+     */
+    @Param({"parse", "passthrough", "validated"})
+    String bodyHandling;
+
+    @Param({"false", "true"})
+    boolean compressed;
+
+    private EventTransmissionService eventTransmissionService;
+    private EventLog eventLog;
+
+    @Setup
+    public void setUp() {
+        EventBodyCompressor compressor = new EventBodyCompressor();
+        eventTransmissionService = new EventTransmissionService(null, null, BenchmarkPayloads.objectMapper(),
+                EventTransmissionSettings.builder()
+                        .eventBodyPassthrough(!bodyHandling.equals("parse"))
+                        .eventBodyValidation(bodyHandling.equals("validated"))
+                        .eventBodyCompressor(compressor)
+                        .build());
+        eventLog = BenchmarkPayloads.eventLog(1, EVENT_TYPE, payloadSize);
+        if (compressed) {
+            eventLog.setEventBodyCompressed(compressor.compress(EVENT_TYPE, eventLog.getEventBodyData()));
+            eventLog.setEventBodyData(null);
+        }
+    }
+
+    @Benchmark
+    public NakadiEvent mapToNakadiEvent() throws IOException {
+        return eventTransmissionService.mapToNakadiEvent(eventLog.toBuilder().build());
+    }
+}
@@ -1,126 +1,72 @@
 package org.zalando.nakadiproducer;
 
-import lombok.extern.slf4j.Slf4j;
-import org.junit.After;
-import org.junit.Before;
-import org.junit.ClassRule;
-import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.http.*;
-import org.springframework.test.context.ContextConfiguration;
-import org.springframework.test.context.TestPropertySource;
-import org.springframework.test.context.junit4.SpringRunner;
-import org.springframework.web.client.RestTemplate;
-import org.testcontainers.containers.DockerComposeContainer;
-import org.testcontainers.containers.wait.strategy.Wait;
-import org.zalando.nakadiproducer.configuration.AopConfiguration;
-import org.zalando.nakadiproducer.configuration.TokenConfiguration;
-import org.zalando.nakadiproducer.event.ExampleBusinessEvent;
-import org.zalando.nakadiproducer.eventlog.EventLogWriter;
-import org.zalando.nakadiproducer.interceptor.ProfilerInterceptor;
-import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 
 import java.io.File;
-import java.time.Duration;
-import java.util.stream.IntStream;
-
-import static org.zalando.nakadiproducer.event.ExampleBusinessEvent.EVENT_NAME;
-
-@RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
-@TestPropertySource(properties = {"nakadi-producer.scheduled-transmission-enabled=false"})
-@ContextConfiguration(classes = {Application.class, TokenConfiguration.class, AopConfiguration.class, ProfilerInterceptor.class})
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.zalando.nakadiproducer.harness.LoadTestResult;
+import org.zalando.nakadiproducer.harness.LoadTestRunner;
+import org.zalando.nakadiproducer.harness.LoadTestScenario;
+import org.zalando.nakadiproducer.harness.NakadiStandIn;
+
+/**
+ * Runs the load test scenarios against an embedded Postgres and an in-process Nakadi stand-in, and writes the
+ * results to a JSON file.
+ * <ul>
+ *     <li>{@code loadtest.scenarios}: a JSON file with the scenarios to run, by default
+ *     {@code loadtest-scenarios.json} from the class path.</li>
+ *     <li>{@code loadtest.results}: the file the results are written to, by default
+ *     {@code target/loadtest-results.json}.</li>
+ * </ul>
+ */
 @Slf4j
 public class LoadTestIT {
 
-    @ClassRule
-    public static DockerComposeContainer compose =
-            new DockerComposeContainer(new File("src/test/resources/docker-compose.yaml"))
-                    .withExposedService("nakadi", 8080,
-                            Wait.forListeningPort().withStartupTimeout(Duration.ofSeconds(240)));
-
-    @Autowired
-    private EventLogWriter eventLogWriter;
-
-    @Autowired
-    private EventTransmitter eventTransmitter;
-
-    @Autowired
-    private RestTemplate restTemplate;
-
-    @Before
-    public void init() {
-        createExampleEvent();
-    }
-
-    private void createExampleEvent() {
-        String createEvent =
-                "{\n" +
-                "  \"name\": \"" + EVENT_NAME + "\",\n" +
-                "  \"owning_application\": \"nakadi-producer-loadtest\",\n" +
-                "  \"category\": \"undefined\",\n" +
-                "  \"partition_strategy\": \"random\",\n" +
-                "  \"schema\": {\n" +
-                "    \"type\": \"json_schema\",\n" +
-                "    \"schema\": \"{ \\\"properties\\\": { \\\"content\\\": { \\\"type\\\": \\\"string\\\" } } }\"\n" +
-                "  }" +
-                "}";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<String> entity = new HttpEntity<>(createEvent, headers);
-
-        ResponseEntity<String> response = restTemplate.exchange("http://localhost:8080/event-types", HttpMethod.POST, entity, String.class);
-        log.debug("created event {}, response [{}]", EVENT_NAME, response);
-    }
-
-    @After
-    public void cleanup() {
-        deleteExampleEvent();
-    }
-
-    private void deleteExampleEvent() {
-        restTemplate.delete("http://localhost:8080/event-types/" + EVENT_NAME);
-    }
-
-    @Test
-    public void testFireAndSendEvents10k() {
-        fireBusinessEvents(10_000);
-        sendEvents();
-    }
-
-    @Test
-    public void testFireAndSendEvents50k() {
-        fireBusinessEvents(50_000);
-        sendEvents();
-    }
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
 
     @Test
-    public void testFireAndSendEvents100k() {
-        fireBusinessEvents(100_000);
-        sendEvents();
-    }
-
-    @Test
-    public void testFireAndSendEvents300k() {
-        fireBusinessEvents(300_000);
-        sendEvents();
-    }
-
-    private void fireBusinessEvents(int amount) {
-        log.info("=== Starting to fire " + amount + " events ============================================================");
-        IntStream.rangeClosed(1, amount).forEach(
-                i -> {
-                    ExampleBusinessEvent event = new ExampleBusinessEvent("example-business-event " + i + " of " + amount);
-                    eventLogWriter.fireBusinessEvent(EVENT_NAME, event);
-                    log.debug("fired event: [{}]", event);
-                }
-        );
+    public void runScenarios() throws Exception {
+        List<LoadTestScenario> scenarios = readScenarios();
+        List<LoadTestResult> results = new ArrayList<>();
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start(); NakadiStandIn nakadi = new NakadiStandIn()) {
+            LoadTestRunner runner = new LoadTestRunner(postgres.getJdbcUrl("postgres", "postgres"), nakadi);
+            for (LoadTestScenario scenario : scenarios) {
+                results.add(runner.run(scenario));
+            }
+        }
+
+        File resultFile = new File(System.getProperty("loadtest.results", "target/loadtest-results.json"));
+        Files.createDirectories(resultFile.getAbsoluteFile().toPath().getParent());
+        objectMapper.writeValue(resultFile, results);
+        log.info("Wrote the load test results to {}", resultFile.getAbsolutePath());
+
+        for (LoadTestResult result : results) {
+            assertThat(result.getScenario().getName(), result.getSentEvents(), is(result.getScenario().getEventCount()));
+        }
     }
 
-    private void sendEvents() {
-        eventTransmitter.sendEvents();
+    private List<LoadTestScenario> readScenarios() throws IOException {
+        TypeReference<List<LoadTestScenario>> type = new TypeReference<>() { };
+        String scenarioFile = System.getProperty("loadtest.scenarios");
+        if (scenarioFile != null) {
+            return objectMapper.readValue(Path.of(scenarioFile).toFile(), type);
+        }
+        try (InputStream scenarios = getClass().getResourceAsStream("/loadtest-scenarios.json")) {
+            return objectMapper.readValue(scenarios, type);
+        }
     }
 }
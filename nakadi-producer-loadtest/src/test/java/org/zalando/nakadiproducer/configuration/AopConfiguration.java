@@ -1,9 +0,0 @@
-package org.zalando.nakadiproducer.configuration;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.EnableAspectJAutoProxy;
-
-@Configuration
-@EnableAspectJAutoProxy
-public class AopConfiguration {
-}
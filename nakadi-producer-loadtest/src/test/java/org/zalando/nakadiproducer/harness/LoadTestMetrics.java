@@ -0,0 +1,126 @@
+package org.zalando.nakadiproducer.harness;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
+
+/**
+ * Collects the measurements of one scenario: the time spent in each transmission stage (summed over all workers),
+ * and the write-to-publish latency of each sent event.
+ */
+public class LoadTestMetrics implements EventTransmissionMetrics {
+
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder lockNanos = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+    private final LongAdder deleteNanos = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder skippedEvents = new LongAdder();
+
+    private final long[] latencyMicros;
+    private final AtomicInteger sentEvents = new AtomicInteger();
+
+    /**
+     * @param expectedEvents the number of events of the scenario, events sent beyond it are counted, but their
+     *                       latency is not recorded.
+     */
+    public LoadTestMetrics(int expectedEvents) {
+        this.latencyMicros = new long[expectedEvents];
+    }
+
+    /**
+     * Events were written to the event log by the application.
+     */
+    public void recordWriting(Duration duration) {
+        writeNanos.add(duration.toNanos());
+    }
+
+    @Override
+    public void recordLocking(int eventCount, Duration duration) {
+        lockNanos.add(duration.toNanos());
+    }
+
+    @Override
+    public void recordSerialization(String eventType, Duration duration) {
+        serializationNanos.add(duration.toNanos());
+    }
+
+    @Override
+    public void recordSkippedEvent(String eventType) {
+        skippedEvents.increment();
+    }
+
+    @Override
+    public void recordPublishing(String eventType, int eventCount, long bytes, Duration duration) {
+        publishNanos.add(duration.toNanos());
+    }
+
+    @Override
+    public void recordSentEvent(String eventType, Duration age) {
+        int index = sentEvents.getAndIncrement();
+        if (index < latencyMicros.length) {
+            latencyMicros[index] = age == null ? 0 : age.toNanos() / 1000;
+        }
+    }
+
+    @Override
+    public void recordFailedEvents(String eventType, int eventCount) {
+        failedEvents.add(eventCount);
+    }
+
+    @Override
+    public void recordDeletion(int eventCount, Duration duration) {
+        deleteNanos.add(duration.toNanos());
+    }
+
+    public int getSentEvents() {
+        return sentEvents.get();
+    }
+
+    public long getFailedEvents() {
+        return failedEvents.sum();
+    }
+
+    public long getSkippedEvents() {
+        return skippedEvents.sum();
+    }
+
+    public long getWriteMillis() {
+        return writeNanos.sum() / 1_000_000;
+    }
+
+    public long getLockMillis() {
+        return lockNanos.sum() / 1_000_000;
+    }
+
+    public long getSerializationMillis() {
+        return serializationNanos.sum() / 1_000_000;
+    }
+
+    public long getPublishMillis() {
+        return publishNanos.sum() / 1_000_000;
+    }
+
+    public long getDeleteMillis() {
+        return deleteNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the write-to-publish latency (in milliseconds) of the given percentile of the sent events.
+     */
+    public double getLatencyMillis(double percentile) {
+        int count = Math.min(sentEvents.get(), latencyMicros.length);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencyMicros, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))] / 1000.0;
+    }
+}
@@ -0,0 +1,43 @@
+package org.zalando.nakadiproducer.harness;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The outcome of one {@link LoadTestScenario}, written to the result file as JSON.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class LoadTestResult {
+
+    private final LoadTestScenario scenario;
+
+    private final int sentEvents;
+    private final long failedEvents;
+    private final long skippedEvents;
+
+    /**
+     * The time from firing the first event until all events were sent.
+     */
+    private final long durationMillis;
+    private final double eventsPerSecond;
+
+    /**
+     * Write-to-publish latency percentiles ({@code p50}, {@code p99}, {@code max}) in milliseconds.
+     */
+    private final Map<String, Double> latencyMillis;
+
+    /**
+     * The time spent in each stage ({@code write}, {@code lock}, {@code serialization}, {@code publish},
+     * {@code delete}), summed over all threads, in milliseconds. All but serialization and publish are
+     * database time.
+     */
+    private final Map<String, Long> stageMillis;
+
+    private final long nakadiRequests;
+    private final long nakadiBytes;
+}
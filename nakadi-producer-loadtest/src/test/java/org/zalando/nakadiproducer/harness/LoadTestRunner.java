@@ -0,0 +1,160 @@
+package org.zalando.nakadiproducer.harness;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zalando.nakadiproducer.Application;
+import org.zalando.nakadiproducer.configuration.TokenConfiguration;
+import org.zalando.nakadiproducer.event.ExampleBusinessEvent;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+
+/**
+ * Runs a {@link LoadTestScenario} against a fresh application context: the events are fired one by one, while the
+ * workers send them concurrently (instead of the scheduler), until all of them arrived at the Nakadi stand-in.
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    private static final long IDLE_WORKER_SLEEP_MILLIS = 10;
+
+    private final String jdbcUrl;
+    private final NakadiStandIn nakadi;
+
+    public LoadTestRunner(String jdbcUrl, NakadiStandIn nakadi) {
+        this.jdbcUrl = jdbcUrl;
+        this.nakadi = nakadi;
+    }
+
+    public LoadTestResult run(LoadTestScenario scenario) throws InterruptedException {
+        log.info("=== Running scenario {}", scenario);
+        LoadTestMetrics metrics = new LoadTestMetrics(scenario.getEventCount());
+        nakadi.reset();
+        nakadi.setLatencyMillis(scenario.getNakadiLatencyMillis());
+
+        try (ConfigurableApplicationContext context = startApplication(scenario, metrics)) {
+            context.getBean(JdbcTemplate.class).update("DELETE FROM nakadi_events.event_log");
+            EventLogWriter eventLogWriter = context.getBean(EventLogWriter.class);
+            EventTransmitter eventTransmitter = context.getBean(EventTransmitter.class);
+
+            Map<Integer, ExampleBusinessEvent> payloads = new HashMap<>();
+            scenario.getPayloadSizes().keySet().forEach(size -> payloads.put(size, payload(size)));
+            Random random = new Random(scenario.getEventCount());
+
+            AtomicBoolean finished = new AtomicBoolean();
+            ExecutorService workers = Executors.newFixedThreadPool(scenario.getWorkers());
+            long start = System.nanoTime();
+            for (int i = 0; i < scenario.getWorkers(); i++) {
+                workers.execute(() -> sendUntilFinished(eventTransmitter, finished));
+            }
+
+            for (int i = 0; i < scenario.getEventCount(); i++) {
+                String eventType = pick(scenario.getEventTypes(), random);
+                ExampleBusinessEvent payload = payloads.get(pick(scenario.getPayloadSizes(), random));
+                long writeStart = System.nanoTime();
+                eventLogWriter.fireBusinessEvent(eventType, payload);
+                metrics.recordWriting(Duration.ofNanos(System.nanoTime() - writeStart));
+            }
+
+            long deadline = start + TimeUnit.SECONDS.toNanos(scenario.getTimeoutSeconds());
+            while (metrics.getSentEvents() < scenario.getEventCount() && System.nanoTime() < deadline) {
+                Thread.sleep(IDLE_WORKER_SLEEP_MILLIS);
+            }
+            long durationNanos = System.nanoTime() - start;
+            finished.set(true);
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+
+            return result(scenario, metrics, durationNanos);
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(LoadTestScenario scenario, LoadTestMetrics metrics) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.datasource.hikari.maximum-pool-size", scenario.getWorkers() + 2);
+        properties.put("nakadi-producer.nakadi-base-uri", nakadi.getBaseUri());
+        properties.put("nakadi-producer.scheduled-transmission-enabled", false);
+        properties.put("nakadi-producer.lock-size", scenario.getLockSize());
+        properties.putAll(scenario.getProperties());
+
+        return new SpringApplicationBuilder(Application.class, TokenConfiguration.class)
+                .properties(properties)
+                // replaces the Micrometer based metrics of the library
+                .initializers(context -> context.getBeanFactory().registerSingleton("eventTransmissionMetrics", metrics))
+                .run();
+    }
+
+    private void sendUntilFinished(EventTransmitter eventTransmitter, AtomicBoolean finished) {
+        while (!finished.get()) {
+            try {
+                if (eventTransmitter.transmit().getLockedEvents() == 0) {
+                    Thread.sleep(IDLE_WORKER_SLEEP_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Sending events failed", e);
+            }
+        }
+    }
+
+    private LoadTestResult result(LoadTestScenario scenario, LoadTestMetrics metrics, long durationNanos) {
+        Map<String, Double> latency = new LinkedHashMap<>();
+        latency.put("p50", metrics.getLatencyMillis(50));
+        latency.put("p99", metrics.getLatencyMillis(99));
+        latency.put("max", metrics.getLatencyMillis(100));
+
+        Map<String, Long> stages = new LinkedHashMap<>();
+        stages.put("write", metrics.getWriteMillis());
+        stages.put("lock", metrics.getLockMillis());
+        stages.put("serialization", metrics.getSerializationMillis());
+        stages.put("publish", metrics.getPublishMillis());
+        stages.put("delete", metrics.getDeleteMillis());
+
+        LoadTestResult result = new LoadTestResult(
+                scenario,
+                metrics.getSentEvents(),
+                metrics.getFailedEvents(),
+                metrics.getSkippedEvents(),
+                TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                metrics.getSentEvents() * 1e9 / durationNanos,
+                latency,
+                stages,
+                nakadi.getRequests(),
+                nakadi.getReceivedBytes());
+        log.info("=== Result of scenario {}: {}", scenario.getName(), result);
+        return result;
+    }
+
+    private static ExampleBusinessEvent payload(int size) {
+        // {"content":"..."}
+        return new ExampleBusinessEvent("x".repeat(Math.max(0, size - 14)));
+    }
+
+    private static <T> T pick(Map<T, Integer> weights, Random random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int value = random.nextInt(total);
+        for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("No weights given");
+    }
+}
@@ -0,0 +1,62 @@
+package org.zalando.nakadiproducer.harness;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * One load test run: which events are fired, and how they are sent. Scenarios are read from JSON, see
+ * {@code loadtest-scenarios.json}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class LoadTestScenario {
+
+    private String name;
+
+    /**
+     * The number of events fired (each in its own transaction).
+     */
+    private int eventCount = 10_000;
+
+    /**
+     * The approximate payload sizes (in bytes) of the fired events, with their relative weights.
+     */
+    private Map<Integer, Integer> payloadSizes = new LinkedHashMap<>(Map.of(256, 1));
+
+    /**
+     * The event types of the fired events, with their relative weights.
+     */
+    private Map<String, Integer> eventTypes = new LinkedHashMap<>(Map.of("example.business.event", 1));
+
+    /**
+     * Used as {@code nakadi-producer.lock-size}.
+     */
+    private int lockSize = 1000;
+
+    /**
+     * The number of threads sending events concurrently (like several application instances would).
+     */
+    private int workers = 1;
+
+    /**
+     * The time the Nakadi stand-in takes to answer each publishing request.
+     */
+    private long nakadiLatencyMillis = 0;
+
+    /**
+     * Further properties for the application, e.g. to enable optional features.
+     */
+    private Map<String, String> properties = new LinkedHashMap<>();
+
+    /**
+     * The time after which the scenario is aborted if not all events were sent.
+     */
+    private long timeoutSeconds = 600;
+}
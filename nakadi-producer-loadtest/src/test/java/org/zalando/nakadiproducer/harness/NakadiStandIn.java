@@ -0,0 +1,79 @@
+package org.zalando.nakadiproducer.harness;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in-process HTTP server which accepts all event batches published to
+ * {@code /event-types/{name}/events}, like a Nakadi without any limits would.
+ * The batches are read completely, but not parsed.
+ */
+@Slf4j
+public class NakadiStandIn implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    /**
+     * The time to wait before answering each request.
+     */
+    @Setter
+    private volatile long latencyMillis;
+
+    public NakadiStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/event-types/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        log.info("Nakadi stand-in listening on {}", getBaseUri());
+    }
+
+    public String getBaseUri() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    public void reset() {
+        requests.set(0);
+        receivedBytes.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/events")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            receivedBytes.addAndGet(body.transferTo(OutputStream.nullOutputStream()));
+            requests.incrementAndGet();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,104 @@
+package org.zalando.nakadiproducer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.transmission.impl.TransmissionRun;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Alternative to {@link EventTransmissionScheduler} which adapts the delay between transmission runs to the backlog:
+ * As long as the lock of a run is cut off by its limit (the possibly adapted lock size, or the byte budget), the next
+ * run starts right away, up to a maximum number of runs, so that other scheduled tasks sharing the scheduler thread
+ * still get their turn. After a run which found some events, the minimum delay is used. After runs which found no
+ * events, the delay is doubled (up to the maximum delay), with some jitter so that multiple instances don't query the
+ * database at the same time.
+ */
+@Slf4j
+public class AdaptiveEventTransmissionScheduler implements SchedulingConfigurer {
+    private static final int DEFAULT_MAX_CONSECUTIVE_RUNS = 10;
+
+    private final EventTransmitter eventTransmitter;
+    private final boolean scheduledTransmissionEnabled;
+    private final long minDelay;
+    private final long maxDelay;
+    private final int maxConsecutiveRuns;
+
+    private volatile long currentDelay;
+
+    public AdaptiveEventTransmissionScheduler(EventTransmitter eventTransmitter, boolean scheduledTransmissionEnabled,
+                                              long minDelay, long maxDelay) {
+        this(eventTransmitter, scheduledTransmissionEnabled, minDelay, maxDelay, DEFAULT_MAX_CONSECUTIVE_RUNS);
+    }
+
+    /**
+     * @param minDelay           the delay (in milliseconds) after a run which found events.
+     * @param maxDelay           the maximum delay (in milliseconds) after runs which found no events.
+     * @param maxConsecutiveRuns the maximum number of runs started right after each other while the locks are full.
+     */
+    public AdaptiveEventTransmissionScheduler(EventTransmitter eventTransmitter, boolean scheduledTransmissionEnabled,
+                                              long minDelay, long maxDelay, int maxConsecutiveRuns) {
+        if (minDelay < 1 || maxDelay < minDelay) {
+            throw new IllegalArgumentException(
+                    "Need 1 <= minDelay <= maxDelay, but got minDelay=" + minDelay + ", maxDelay=" + maxDelay);
+        }
+        if (maxConsecutiveRuns < 1) {
+            throw new IllegalArgumentException("maxConsecutiveRuns must be at least 1, but was " + maxConsecutiveRuns);
+        }
+        this.maxConsecutiveRuns = maxConsecutiveRuns;
+        this.eventTransmitter = eventTransmitter;
+        this.scheduledTransmissionEnabled = scheduledTransmissionEnabled;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.currentDelay = minDelay;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (scheduledTransmissionEnabled) {
+            taskRegistrar.addTriggerTask(this::sendEvents, triggerContext -> {
+                Instant lastCompletion = triggerContext.lastCompletion();
+                return (lastCompletion == null ? Instant.now() : lastCompletion).plusMillis(jittered(currentDelay));
+            });
+        }
+    }
+
+    void sendEvents() {
+        int lockedEvents;
+        try {
+            TransmissionRun run;
+            int runs = 0;
+            do {
+                run = eventTransmitter.transmit();
+                runs++;
+            } while (run.isLockLimitReached() && runs < maxConsecutiveRuns);
+            lockedEvents = run.getLockedEvents();
+        } catch (RuntimeException e) {
+            log.error("Could not send events.", e);
+            lockedEvents = 0;
+        }
+
+        if (lockedEvents > 0) {
+            currentDelay = minDelay;
+        } else {
+            currentDelay = Math.min(maxDelay, 2 * currentDelay);
+        }
+    }
+
+    long getCurrentDelay() {
+        return currentDelay;
+    }
+
+    /**
+     * Backed off delays are randomly reduced by up to half (but not below the minimum delay).
+     */
+    private long jittered(long delay) {
+        if (delay <= minDelay) {
+            return delay;
+        }
+        return Math.max(minDelay, delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+}
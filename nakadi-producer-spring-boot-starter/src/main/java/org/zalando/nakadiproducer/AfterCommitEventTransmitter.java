@@ -0,0 +1,133 @@
+package org.zalando.nakadiproducer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+import org.zalando.nakadiproducer.eventlog.impl.PersistedEventsListener;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmissionService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends newly persisted events right after the transaction persisting them was committed, instead of waiting
+ * for the next transmission run. The ids of the events are handed over through an in-memory queue to a
+ * background thread, which locks and sends exactly these events.
+ * <p>
+ * This is only a fast path: if the queue is full, the application is stopped or sending fails, the events
+ * are still in the event log and will be sent by the regular transmission.
+ * </p>
+ */
+@Slf4j
+public class AfterCommitEventTransmitter implements PersistedEventsListener {
+
+    // the longest time the sender thread blocks, so it notices when it is stopped
+    private static final long MAX_WAIT_MILLIS = 1000;
+
+    private final EventTransmissionService eventTransmissionService;
+    private final int maxEventsPerRun;
+    private final BlockingQueue<Integer> eventIds;
+    private final boolean transmissionEnabled;
+
+    private volatile boolean running;
+    private Thread senderThread;
+
+    public AfterCommitEventTransmitter(EventTransmissionService eventTransmissionService, int maxEventsPerRun,
+                                       int queueCapacity) {
+        this(eventTransmissionService, maxEventsPerRun, queueCapacity, true);
+    }
+
+    /**
+     * @param maxEventsPerRun     the maximum number of events locked and sent at once, unless the lock size is
+     *                            adapted by the {@link EventTransmissionService}.
+     * @param queueCapacity       the maximum number of event ids waiting to be sent. Further events are left to
+     *                            the regular transmission.
+     * @param transmissionEnabled if false, nothing is queued or sent (like the scheduled transmission, which is
+     *                            switched off by the same property).
+     */
+    public AfterCommitEventTransmitter(EventTransmissionService eventTransmissionService, int maxEventsPerRun,
+                                       int queueCapacity, boolean transmissionEnabled) {
+        this.eventTransmissionService = eventTransmissionService;
+        this.maxEventsPerRun = maxEventsPerRun;
+        this.eventIds = new LinkedBlockingQueue<>(queueCapacity);
+        this.transmissionEnabled = transmissionEnabled;
+    }
+
+    @Override
+    public void eventsPersisted(Collection<EventLog> eventLogs) {
+        if (!transmissionEnabled) {
+            return;
+        }
+        List<Integer> ids = eventLogs.stream().map(EventLog::getId).filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(ids);
+                }
+            });
+        } else {
+            // without a transaction, the events are committed already
+            enqueue(ids);
+        }
+    }
+
+    private void enqueue(List<Integer> ids) {
+        for (Integer id : ids) {
+            if (!eventIds.offer(id)) {
+                log.debug("Queue for immediate transmission is full, leaving events to the regular transmission.");
+                return;
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!transmissionEnabled) {
+            return;
+        }
+        running = true;
+        senderThread = Thread.ofPlatform().name("nakadi-producer-after-commit").daemon().start(this::sendQueuedEvents);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (senderThread != null) {
+            senderThread.join(2 * MAX_WAIT_MILLIS);
+        }
+    }
+
+    private void sendQueuedEvents() {
+        List<Integer> ids = new ArrayList<>();
+        while (running) {
+            try {
+                Integer id = eventIds.poll(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (id == null) {
+                    continue;
+                }
+                ids.add(id);
+                eventIds.drainTo(ids, eventTransmissionService.effectiveLockSize(maxEventsPerRun) - 1);
+                eventTransmissionService.sendEvents(eventTransmissionService.lockEventsById(ids));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not send events right after commit, leaving them to the regular transmission.", e);
+            } finally {
+                ids.clear();
+            }
+        }
+    }
+}
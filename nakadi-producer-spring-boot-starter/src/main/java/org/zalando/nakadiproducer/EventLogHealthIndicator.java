@@ -0,0 +1,54 @@
+package org.zalando.nakadiproducer;
+
+import java.time.Duration;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealth;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealthMonitor;
+
+/**
+ * Reports the state of the event log as seen by the {@link EventLogHealthMonitor}. The status is
+ * {@code DOWN} if the oldest event is older than {@code maxEventAge} or the backlog is bigger than
+ * {@code maxBacklog}, i.e. if the events are not sent fast enough. Without any limit, it is always {@code UP}
+ * (once measured) and only reports the measurements as details.
+ */
+public class EventLogHealthIndicator implements HealthIndicator {
+
+    private final EventLogHealthMonitor monitor;
+    private final Duration maxEventAge;
+    private final long maxBacklog;
+
+    /**
+     * @param maxEventAge the maximum age of the oldest event, or {@code null} for no limit.
+     * @param maxBacklog  the maximum backlog, or 0 for no limit.
+     */
+    public EventLogHealthIndicator(EventLogHealthMonitor monitor, Duration maxEventAge, long maxBacklog) {
+        this.monitor = monitor;
+        this.maxEventAge = maxEventAge;
+        this.maxBacklog = maxBacklog;
+    }
+
+    @Override
+    public Health health() {
+        EventLogHealth health = monitor.getHealth();
+        if (health == null) {
+            return Health.unknown().withDetail("reason", "The event log was not measured yet").build();
+        }
+
+        boolean tooOld = maxEventAge != null && health.getOldestEventAge() != null
+                && health.getOldestEventAge().compareTo(maxEventAge) > 0;
+        boolean tooBig = maxBacklog > 0 && health.getBacklog() > maxBacklog;
+
+        Health.Builder builder = tooOld || tooBig ? Health.down() : Health.up();
+        builder.withDetail("measuredAt", health.getMeasuredAt().toString())
+                .withDetail("backlog", health.getBacklog())
+                .withDetail("backlogByEventType", health.getBacklogByEventType())
+                .withDetail("lockedEvents", health.getLockedEvents())
+                .withDetail("deadTupleRatio", health.getDeadTupleRatio());
+        if (health.getOldestEventAge() != null) {
+            builder.withDetail("oldestEventAge", health.getOldestEventAge().toString());
+        }
+        return builder.build();
+    }
+}
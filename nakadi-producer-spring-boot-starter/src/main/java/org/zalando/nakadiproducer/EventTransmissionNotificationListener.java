@@ -0,0 +1,138 @@
+package org.zalando.nakadiproducer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepositoryImpl;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.transmission.impl.TransmissionRun;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Sends events as soon as a notification about newly persisted events arrives (via Postgres' LISTEN/NOTIFY),
+ * instead of polling the database in a fixed interval. If no notification arrives within the fallback polling
+ * delay, the events are sent anyway, so nothing gets stuck if a notification is missed (e.g. while reconnecting).
+ * <p>
+ * This holds one connection of the data source for as long as the application runs.
+ * </p>
+ */
+@Slf4j
+public class EventTransmissionNotificationListener {
+
+    // the longest time the listener thread blocks, so it notices when it is stopped
+    private static final int MAX_WAIT_MILLIS = 1000;
+    private static final int DEFAULT_MAX_CONSECUTIVE_RUNS = 10;
+
+    private final DataSource dataSource;
+    private final EventTransmitter eventTransmitter;
+    private final long fallbackPollingDelay;
+    private final boolean transmissionEnabled;
+    private final int maxConsecutiveRuns;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public EventTransmissionNotificationListener(DataSource dataSource, EventTransmitter eventTransmitter,
+                                                 long fallbackPollingDelay, boolean transmissionEnabled) {
+        this(dataSource, eventTransmitter, fallbackPollingDelay, transmissionEnabled, DEFAULT_MAX_CONSECUTIVE_RUNS);
+    }
+
+    /**
+     * @param maxConsecutiveRuns the maximum number of runs started right after each other while the locks are full.
+     *                           After that, the listener waits for the next notification (or the fallback delay).
+     */
+    public EventTransmissionNotificationListener(DataSource dataSource, EventTransmitter eventTransmitter,
+                                                 long fallbackPollingDelay, boolean transmissionEnabled,
+                                                 int maxConsecutiveRuns) {
+        if (maxConsecutiveRuns < 1) {
+            throw new IllegalArgumentException("maxConsecutiveRuns must be at least 1, but was " + maxConsecutiveRuns);
+        }
+        this.dataSource = dataSource;
+        this.eventTransmitter = eventTransmitter;
+        this.fallbackPollingDelay = fallbackPollingDelay;
+        this.transmissionEnabled = transmissionEnabled;
+        this.maxConsecutiveRuns = maxConsecutiveRuns;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!transmissionEnabled) {
+            return;
+        }
+        running = true;
+        listenerThread = Thread.ofPlatform().name("nakadi-producer-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.join(2 * MAX_WAIT_MILLIS);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + EventLogRepositoryImpl.NOTIFICATION_CHANNEL);
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // events might have been persisted while we were not listening yet
+                sendEvents();
+                long lastSent = System.currentTimeMillis();
+                while (running) {
+                    long remaining = lastSent + fallbackPollingDelay - System.currentTimeMillis();
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications((int) Math.max(1, Math.min(remaining, MAX_WAIT_MILLIS)));
+                    if ((notifications != null && notifications.length > 0)
+                            || System.currentTimeMillis() >= lastSent + fallbackPollingDelay) {
+                        sendEvents();
+                        lastSent = System.currentTimeMillis();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Listening for event log notifications failed, reconnecting.", e);
+                    sleep(MAX_WAIT_MILLIS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends events until a lock isn't full anymore (or the maximum number of runs is reached), like
+     * {@link AdaptiveEventTransmissionScheduler}, so a backlog larger than one lock doesn't wait for the next
+     * notification.
+     */
+    private void sendEvents() {
+        try {
+            TransmissionRun run;
+            int runs = 0;
+            do {
+                run = eventTransmitter.transmit();
+                runs++;
+            } while (running && run.isLockLimitReached() && runs < maxConsecutiveRuns);
+        } catch (RuntimeException e) {
+            log.error("Could not send events.", e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
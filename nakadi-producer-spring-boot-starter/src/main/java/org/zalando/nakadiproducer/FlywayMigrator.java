@@ -9,6 +9,7 @@ import org.flywaydb.core.api.callback.Context;
 import org.flywaydb.core.api.callback.Event;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
 import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
@@ -58,8 +59,28 @@ public class FlywayMigrator {
     @Autowired
     private DataSourceProperties dataSourceProperties;
 
+    @Value("${nakadi-producer.partitioning-enabled:false}")
+    private boolean partitioningEnabled;
+
     @PostConstruct
     public void migrateFlyway() {
+        final FluentConfiguration config = configure();
+        config.locations("classpath:db_nakadiproducer/migrations");
+        config.baselineVersion("2133546886.1.0");
+        new Flyway(config).migrate();
+
+        if (partitioningEnabled) {
+            // Tracked in its own history table, so that regular migrations added later (which have lower versions
+            // than the partitioning migration) are still applied in order, without allowing out of order migrations.
+            final FluentConfiguration partitioningConfig = configure();
+            partitioningConfig.locations("classpath:db_nakadiproducer/partitioning");
+            partitioningConfig.table("flyway_schema_history_partitioning");
+            partitioningConfig.baselineVersion("0");
+            new Flyway(partitioningConfig).migrate();
+        }
+    }
+
+    private FluentConfiguration configure() {
         final FluentConfiguration config = Flyway.configure();
 
         if (this.nakadiProducerFlywayDataSource != null) {
@@ -77,17 +98,13 @@ public class FlywayMigrator {
             config.dataSource(dataSource);
         }
 
-        config.locations("classpath:db_nakadiproducer/migrations");
         config.schemas("nakadi_events");
         if (callbacks != null) {
             config.callbacks(callbacks.stream().map(FlywayCallbackAdapter::new).toArray(FlywayCallbackAdapter[]::new));
         }
 
         config.baselineOnMigrate(true);
-        config.baselineVersion("2133546886.1.0");
-
-        Flyway flyway = new Flyway(config);
-        flyway.migrate();
+        return config;
     }
 
     private static class FlywayCallbackAdapter extends BaseCallback {
@@ -0,0 +1,57 @@
+package org.zalando.nakadiproducer;
+
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealth;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealthMonitor;
+
+/**
+ * Publishes the snapshots of the {@link EventLogHealthMonitor} as Micrometer gauges. The gauges report NaN
+ * until the first snapshot was taken.
+ */
+public class MicrometerEventLogHealthMetrics implements MeterBinder {
+
+    private final EventLogHealthMonitor monitor;
+
+    public MicrometerEventLogHealthMetrics(EventLogHealthMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nakadi.producer.backlog", monitor, m -> value(m, EventLogHealth::getBacklog))
+                .description("Approximate number of events not yet sent")
+                .register(registry);
+        Gauge.builder("nakadi.producer.oldest.event.age", monitor, m -> value(m, h ->
+                        h.getOldestEventAge() == null ? 0.0 : h.getOldestEventAge().toMillis() / 1000.0))
+                .description("Age of the oldest event not yet sent")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("nakadi.producer.locked.events", monitor, m -> value(m, EventLogHealth::getLockedEvents))
+                .description("Number of events currently locked")
+                .register(registry);
+        Gauge.builder("nakadi.producer.dead.tuple.ratio", monitor, m -> value(m, EventLogHealth::getDeadTupleRatio))
+                .description("Share of dead tuples in the event log table")
+                .register(registry);
+
+        MultiGauge backlogByEventType = MultiGauge.builder("nakadi.producer.backlog.by.event.type")
+                .description("Approximate number of events not yet sent, for the most common event types")
+                .register(registry);
+        monitor.addListener(health -> backlogByEventType.register(
+                health.getBacklogByEventType().entrySet().stream()
+                        .map(entry -> MultiGauge.Row.of(Tags.of("event_type", entry.getKey()), entry.getValue()))
+                        .collect(Collectors.toList()),
+                true));
+    }
+
+    private static double value(EventLogHealthMonitor monitor, ToDoubleFunction<EventLogHealth> getter) {
+        EventLogHealth health = monitor.getHealth();
+        return health == null ? Double.NaN : getter.applyAsDouble(health);
+    }
+}
@@ -0,0 +1,138 @@
+package org.zalando.nakadiproducer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
+
+/**
+ * Publishes the measurements of the event transmission as Micrometer metrics, all named
+ * {@code nakadi.producer.*}, most of them tagged with the event type.
+ */
+public class MicrometerEventTransmissionMetrics implements EventTransmissionMetrics {
+
+    private static final String EVENT_TYPE = "event_type";
+    private static final String RESULT = "result";
+
+    private final MeterRegistry registry;
+    private final Timer lockTimer;
+    private final DistributionSummary lockedEvents;
+    private final Timer deleteTimer;
+    // some of the meters are used for each event, so they are only looked up once per event type
+    private final Map<String, EventTypeMeters> metersByEventType = new ConcurrentHashMap<>();
+
+    public MicrometerEventTransmissionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.lockTimer = Timer.builder("nakadi.producer.lock")
+                .description("Time taken to lock (and load) events")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lockedEvents = DistributionSummary.builder("nakadi.producer.lock.events")
+                .description("Number of events locked at once")
+                .register(registry);
+        this.deleteTimer = Timer.builder("nakadi.producer.delete")
+                .description("Time taken to delete published events")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void recordLocking(int eventCount, Duration duration) {
+        lockTimer.record(duration);
+        lockedEvents.record(eventCount);
+    }
+
+    @Override
+    public void recordSerialization(String eventType, Duration duration) {
+        meters(eventType).serialization.record(duration);
+    }
+
+    @Override
+    public void recordSkippedEvent(String eventType) {
+        meters(eventType).skippedEvents.increment();
+    }
+
+    @Override
+    public void recordPublishing(String eventType, int eventCount, long bytes, Duration duration) {
+        EventTypeMeters meters = meters(eventType);
+        meters.publish.record(duration);
+        meters.batchEvents.record(eventCount);
+        meters.batchBytes.record(bytes);
+    }
+
+    @Override
+    public void recordSentEvent(String eventType, Duration age) {
+        EventTypeMeters meters = meters(eventType);
+        meters.sentEvents.increment();
+        if (age != null) {
+            meters.eventAge.record(age);
+        }
+    }
+
+    @Override
+    public void recordFailedEvents(String eventType, int eventCount) {
+        meters(eventType).failedEvents.increment(eventCount);
+    }
+
+    @Override
+    public void recordDeletion(int eventCount, Duration duration) {
+        deleteTimer.record(duration);
+    }
+
+    private EventTypeMeters meters(String eventType) {
+        return metersByEventType.computeIfAbsent(eventType, type -> new EventTypeMeters(registry, type));
+    }
+
+    private static class EventTypeMeters {
+        private final Timer serialization;
+        private final Timer publish;
+        private final DistributionSummary batchEvents;
+        private final DistributionSummary batchBytes;
+        private final Timer eventAge;
+        private final Counter sentEvents;
+        private final Counter failedEvents;
+        private final Counter skippedEvents;
+
+        EventTypeMeters(MeterRegistry registry, String eventType) {
+            serialization = Timer.builder("nakadi.producer.serialization")
+                    .description("Time taken to convert an event into its Nakadi form")
+                    .tag(EVENT_TYPE, eventType)
+                    .register(registry);
+            publish = Timer.builder("nakadi.producer.publish")
+                    .description("Time taken to publish a batch to Nakadi")
+                    .tag(EVENT_TYPE, eventType)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            batchEvents = DistributionSummary.builder("nakadi.producer.batch.events")
+                    .description("Number of events per published batch")
+                    .tag(EVENT_TYPE, eventType)
+                    .register(registry);
+            batchBytes = DistributionSummary.builder("nakadi.producer.batch.bytes")
+                    .description("Estimated size of published batches")
+                    .baseUnit("bytes")
+                    .tag(EVENT_TYPE, eventType)
+                    .register(registry);
+            eventAge = Timer.builder("nakadi.producer.event.age")
+                    .description("Time between the creation of an event and its publishing")
+                    .tag(EVENT_TYPE, eventType)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            sentEvents = eventCounter(registry, eventType, "sent");
+            failedEvents = eventCounter(registry, eventType, "failed");
+            skippedEvents = eventCounter(registry, eventType, "skipped");
+        }
+
+        private static Counter eventCounter(MeterRegistry registry, String eventType, String result) {
+            return Counter.builder("nakadi.producer.events")
+                    .description("Number of events processed by the transmission, by result")
+                    .tag(EVENT_TYPE, eventType)
+                    .tag(RESULT, result)
+                    .register(registry);
+        }
+    }
+}
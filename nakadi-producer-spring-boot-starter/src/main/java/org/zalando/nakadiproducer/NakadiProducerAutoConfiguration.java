@@ -1,17 +1,26 @@
 package org.zalando.nakadiproducer;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -20,6 +29,7 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -29,12 +39,17 @@ import org.zalando.fahrschein.http.api.RequestFactory;
 import org.zalando.fahrschein.http.simple.SimpleRequestFactory;
 import org.zalando.nakadiproducer.eventlog.CompactionKeyExtractor;
 import org.zalando.nakadiproducer.eventlog.EidGeneratorStrategy;
+import org.zalando.nakadiproducer.eventlog.impl.EventBodyCompressor;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogBuilder;
 import org.zalando.nakadiproducer.eventlog.EventLogWriter;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogBuilderImpl;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealthMonitor;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogPartitionManager;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogRepositoryImpl;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepositorySettings;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogWriterImpl;
+import org.zalando.nakadiproducer.eventlog.impl.PersistedEventsListener;
 import org.zalando.nakadiproducer.flowid.FlowIdComponent;
 import org.zalando.nakadiproducer.flowid.NoopFlowIdComponent;
 import org.zalando.nakadiproducer.flowid.TracerFlowIdComponent;
@@ -42,9 +57,13 @@ import org.zalando.nakadiproducer.snapshots.SnapshotEventGenerator;
 import org.zalando.nakadiproducer.snapshots.impl.SnapshotCreationService;
 import org.zalando.nakadiproducer.snapshots.impl.SnapshotEventCreationEndpoint;
 import org.zalando.nakadiproducer.transmission.NakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
+import org.zalando.nakadiproducer.transmission.impl.AimdLockSizeController;
 import org.zalando.nakadiproducer.transmission.impl.EventTransmissionService;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmissionSettings;
 import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
 import org.zalando.nakadiproducer.transmission.impl.FahrscheinNakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.impl.RetryBackoff;
 import org.zalando.tracer.Tracer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -154,14 +173,83 @@ public class NakadiProducerAutoConfiguration {
     @Bean
     public EventLogWriter eventLogWriter(EventLogRepository eventLogRepository,
                                          EventLogBuilder eventLogBuilder,
-                                         List<CompactionKeyExtractor> extractorList) {
+                                         List<CompactionKeyExtractor> extractorList,
+                                         Optional<PersistedEventsListener> persistedEventsListener) {
+        if (persistedEventsListener.isPresent()) {
+            return new EventLogWriterImpl(eventLogRepository, eventLogBuilder, extractorList, persistedEventsListener.get());
+        }
         return new EventLogWriterImpl(eventLogRepository, eventLogBuilder, extractorList);
     }
 
     @Bean
     public EventLogRepository eventLogRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
-        @Value("${nakadi-producer.lock-size:1000}") int lockSize) {
-        return new EventLogRepositoryImpl(namedParameterJdbcTemplate, lockSize);
+        @Value("${nakadi-producer.lock-size:1000}") int lockSize,
+        @Value("${nakadi-producer.fetch-size:100}") int fetchSize,
+        @Value("${nakadi-producer.ordered-claim-enabled:false}") boolean orderedClaim,
+        @Value("${nakadi-producer.listen-notify-enabled:false}") boolean notifyOnPersist,
+        @Value("${nakadi-producer.copy-insert-threshold:0}") int copyThreshold,
+        @Value("${nakadi-producer.lock-byte-budget:0}") long lockByteBudget) {
+        return new EventLogRepositoryImpl(namedParameterJdbcTemplate, EventLogRepositorySettings.builder()
+            .lockSize(lockSize)
+            .fetchSize(fetchSize)
+            .orderedClaim(orderedClaim)
+            .notifyOnPersist(notifyOnPersist)
+            .copyThreshold(copyThreshold)
+            .lockByteBudget(lockByteBudget)
+            .build());
+    }
+
+    @ConditionalOnProperty(name="nakadi-producer.partitioning-enabled", havingValue = "true")
+    @EnableScheduling
+    @Configuration
+    static class PartitioningConfiguration {
+
+        @Bean
+        @DependsOn("flywayMigrator")
+        public EventLogPartitionManager eventLogPartitionManager(
+                NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                @Value("${nakadi-producer.partition-size:1000000}") long partitionSize) {
+            return new EventLogPartitionManager(namedParameterJdbcTemplate.getJdbcTemplate(), partitionSize);
+        }
+    }
+
+    @ConditionalOnProperty(name="nakadi-producer.health-monitor-enabled", havingValue = "true")
+    @EnableScheduling
+    @Configuration
+    static class HealthMonitorConfiguration {
+
+        @Bean
+        @DependsOn("flywayMigrator")
+        public EventLogHealthMonitor eventLogHealthMonitor(
+                NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                @Value("${nakadi-producer.health-monitor-top-event-types:10}") int topEventTypes) {
+            return new EventLogHealthMonitor(namedParameterJdbcTemplate.getJdbcTemplate(), topEventTypes);
+        }
+
+        @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+        @Configuration
+        static class HealthIndicatorConfiguration {
+
+            @Bean
+            @ConditionalOnEnabledHealthIndicator("nakadi-producer")
+            public EventLogHealthIndicator nakadiProducerHealthIndicator(
+                    EventLogHealthMonitor eventLogHealthMonitor,
+                    @Value("${nakadi-producer.health-max-event-age:0}") long maxEventAge,
+                    @Value("${nakadi-producer.health-max-backlog:0}") long maxBacklog) {
+                return new EventLogHealthIndicator(eventLogHealthMonitor,
+                        maxEventAge > 0 ? Duration.ofMillis(maxEventAge) : null, maxBacklog);
+            }
+        }
+
+        @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+        @Configuration
+        static class HealthMetricsConfiguration {
+
+            @Bean
+            public MicrometerEventLogHealthMetrics eventLogHealthMetrics(EventLogHealthMonitor eventLogHealthMonitor) {
+                return new MicrometerEventLogHealthMetrics(eventLogHealthMonitor);
+            }
+        }
     }
 
     @ConditionalOnProperty(name="nakadi-producer.submission-enabled", havingValue = "true", matchIfMissing = true)
@@ -170,26 +258,152 @@ public class NakadiProducerAutoConfiguration {
     static class TransmissionConfiguration {
 
         @Bean
-        public EventTransmitter eventTransmitter(EventTransmissionService eventTransmissionService) {
-            return new EventTransmitter(eventTransmissionService);
+        public EventTransmitter eventTransmitter(
+                EventTransmissionService eventTransmissionService,
+                @Value("${nakadi-producer.streaming-transmission-enabled:false}") boolean streamingEnabled,
+                @Value("${nakadi-producer.pipelined-transmission-enabled:false}") boolean pipeliningEnabled,
+                @Value("${nakadi-producer.pipelined-transmission-max-locks:10}") int maxPipelinedLocks) {
+            return new EventTransmitter(eventTransmissionService, streamingEnabled, pipeliningEnabled, maxPipelinedLocks);
         }
 
         @Bean
+        @ConditionalOnProperty(name={"nakadi-producer.listen-notify-enabled", "nakadi-producer.adaptive-polling-enabled"},
+                havingValue = "false", matchIfMissing = true)
         public EventTransmissionScheduler eventTransmissionScheduler(
                 EventTransmitter eventTransmitter,
                 @Value("${nakadi-producer.scheduled-transmission-enabled:true}") boolean scheduledTransmissionEnabled) {
             return new EventTransmissionScheduler(eventTransmitter, scheduledTransmissionEnabled);
         }
 
+        @Bean
+        @ConditionalOnExpression("${nakadi-producer.adaptive-polling-enabled:false} && !${nakadi-producer.listen-notify-enabled:false}")
+        public AdaptiveEventTransmissionScheduler adaptiveEventTransmissionScheduler(
+                EventTransmitter eventTransmitter,
+                @Value("${nakadi-producer.scheduled-transmission-enabled:true}") boolean scheduledTransmissionEnabled,
+                @Value("${nakadi-producer.adaptive-polling-min-delay:${nakadi-producer.transmission-polling-delay:1000}}") long minDelay,
+                @Value("${nakadi-producer.adaptive-polling-max-delay:30000}") long maxDelay,
+                @Value("${nakadi-producer.adaptive-polling-max-consecutive-runs:10}") int maxConsecutiveRuns) {
+            return new AdaptiveEventTransmissionScheduler(
+                    eventTransmitter, scheduledTransmissionEnabled, minDelay, maxDelay, maxConsecutiveRuns);
+        }
+
+        @Bean
+        @ConditionalOnProperty(name="nakadi-producer.after-commit-transmission-enabled", havingValue = "true")
+        public AfterCommitEventTransmitter afterCommitEventTransmitter(
+                EventTransmissionService eventTransmissionService,
+                @Value("${nakadi-producer.lock-size:1000}") int lockSize,
+                @Value("${nakadi-producer.after-commit-queue-capacity:10000}") int queueCapacity,
+                @Value("${nakadi-producer.scheduled-transmission-enabled:true}") boolean scheduledTransmissionEnabled) {
+            return new AfterCommitEventTransmitter(eventTransmissionService, lockSize > 0 ? lockSize : 1000, queueCapacity,
+                    scheduledTransmissionEnabled);
+        }
+
+        @ConditionalOnClass(name = "org.postgresql.PGConnection")
+        @ConditionalOnProperty(name="nakadi-producer.listen-notify-enabled", havingValue = "true")
+        @Configuration
+        static class NotificationListenerConfiguration {
+            @Bean
+            public EventTransmissionNotificationListener eventTransmissionNotificationListener(
+                    DataSource dataSource,
+                    EventTransmitter eventTransmitter,
+                    @Value("${nakadi-producer.notification-fallback-polling-delay:60000}") long fallbackPollingDelay,
+                    @Value("${nakadi-producer.scheduled-transmission-enabled:true}") boolean scheduledTransmissionEnabled,
+                    @Value("${nakadi-producer.notification-max-consecutive-runs:10}") int maxConsecutiveRuns) {
+                return new EventTransmissionNotificationListener(dataSource, eventTransmitter, fallbackPollingDelay,
+                        scheduledTransmissionEnabled, maxConsecutiveRuns);
+            }
+        }
+
+        /**
+         * The scheduler is switched off by listen-notify-enabled, so without the driver no events would be sent at all.
+         */
+        @ConditionalOnMissingClass("org.postgresql.PGConnection")
+        @ConditionalOnProperty(name="nakadi-producer.listen-notify-enabled", havingValue = "true")
+        @Configuration
+        static class MissingNotificationDriverConfiguration {
+            MissingNotificationDriverConfiguration() {
+                throw new IllegalStateException("nakadi-producer.listen-notify-enabled needs the PostgreSQL JDBC driver "
+                        + "(org.postgresql.PGConnection) on the classpath.");
+            }
+        }
+
         @Bean
         public EventTransmissionService eventTransmissionService(
                 EventLogRepository eventLogRepository,
                 NakadiPublishingClient nakadiPublishingClient,
                 ObjectMapper objectMapper,
                 @Value("${nakadi-producer.lock-duration:600}") int lockDuration,
-                @Value("${nakadi-producer.lock-duration-buffer:60}") int lockDurationBuffer) {
-            return new EventTransmissionService(
-                    eventLogRepository, nakadiPublishingClient, objectMapper, lockDuration, lockDurationBuffer);
+                @Value("${nakadi-producer.lock-duration-buffer:60}") int lockDurationBuffer,
+                @Value("${nakadi-producer.event-body-passthrough-enabled:false}") boolean eventBodyPassthrough,
+                @Value("${nakadi-producer.event-body-validation-enabled:false}") boolean eventBodyValidation,
+                @Value("${nakadi-producer.publishing-concurrency:1}") int publishingConcurrency,
+                EventBodyCompressor eventBodyCompressor,
+                Optional<AimdLockSizeController> lockSizeController,
+                Optional<EventTransmissionMetrics> metrics,
+                @Value("${nakadi-producer.retry-backoff-enabled:false}") boolean retryBackoffEnabled,
+                @Value("${nakadi-producer.retry-initial-backoff:1000}") long retryInitialBackoff,
+                @Value("${nakadi-producer.retry-max-backoff:600000}") long retryMaxBackoff,
+                @Value("${nakadi-producer.lock-release-enabled:false}") boolean lockReleaseEnabled) {
+            RetryBackoff retryBackoff = retryBackoffEnabled
+                    ? new RetryBackoff(Duration.ofMillis(retryInitialBackoff), Duration.ofMillis(retryMaxBackoff))
+                    : null;
+            return new EventTransmissionService(eventLogRepository, nakadiPublishingClient, objectMapper,
+                    EventTransmissionSettings.builder()
+                            .lockDuration(lockDuration)
+                            .lockDurationBuffer(lockDurationBuffer)
+                            .eventBodyPassthrough(eventBodyPassthrough)
+                            .eventBodyValidation(eventBodyValidation)
+                            .publishingConcurrency(publishingConcurrency)
+                            .eventBodyCompressor(eventBodyCompressor)
+                            .lockSizeController(lockSizeController.orElse(null))
+                            .metrics(metrics.orElse(EventTransmissionMetrics.NOOP))
+                            .retryBackoff(retryBackoff)
+                            .lockReleaseEnabled(lockReleaseEnabled)
+                            .build());
+        }
+
+        @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+        @Configuration
+        static class MetricsConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public EventTransmissionMetrics eventTransmissionMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                return registry == null
+                        ? EventTransmissionMetrics.NOOP
+                        : new MicrometerEventTransmissionMetrics(registry);
+            }
+        }
+
+        @ConditionalOnProperty(name="nakadi-producer.adaptive-lock-size-enabled", havingValue = "true")
+        @Configuration
+        static class AdaptiveLockSizeConfiguration {
+
+            @Bean
+            public AimdLockSizeController aimdLockSizeController(
+                    @Value("${nakadi-producer.lock-size:1000}") int lockSize,
+                    @Value("${nakadi-producer.adaptive-lock-size-min:10}") int minLockSize,
+                    @Value("${nakadi-producer.adaptive-lock-size-max:10000}") int maxLockSize,
+                    @Value("${nakadi-producer.adaptive-lock-size-increase:10}") int increase,
+                    @Value("${nakadi-producer.adaptive-lock-size-target-latency:1000}") long targetLatency) {
+                return new AimdLockSizeController(
+                        lockSize > 0 ? lockSize : maxLockSize, minLockSize, maxLockSize, increase,
+                        Duration.ofMillis(targetLatency));
+            }
+
+            @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+            @Configuration
+            static class LockSizeMetricsConfiguration {
+
+                @Bean
+                public MeterBinder aimdLockSizeMetrics(AimdLockSizeController aimdLockSizeController) {
+                    return registry -> Gauge.builder("nakadi.producer.lock.size", aimdLockSizeController,
+                                    AimdLockSizeController::getLockSize)
+                            .description("The number of events currently locked at once")
+                            .register(registry);
+                }
+            }
         }
     }
 
@@ -201,7 +415,16 @@ public class NakadiProducerAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public EventLogBuilder eventLogBuilder(ObjectMapper objectMapper, FlowIdComponent flowIdComponent,
-                                          EidGeneratorStrategy eidGeneratorStrategy) {
-        return new EventLogBuilderImpl(objectMapper, flowIdComponent, eidGeneratorStrategy);
+                                          EidGeneratorStrategy eidGeneratorStrategy,
+                                          EventBodyCompressor eventBodyCompressor,
+                                          @Value("${nakadi-producer.event-body-compression-enabled:false}") boolean compressionEnabled) {
+        return new EventLogBuilderImpl(objectMapper, flowIdComponent, eidGeneratorStrategy,
+                compressionEnabled ? eventBodyCompressor : null);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EventBodyCompressor eventBodyCompressor() {
+        return new EventBodyCompressor();
     }
 }
@@ -0,0 +1,138 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Inserts events using Postgres' {@code COPY ... FROM STDIN} (in text format), which avoids building and
+ * executing one statement per event. The rows are written to the connection while they are being formatted.
+ * <p>
+ * Unlike the batched INSERT, this doesn't return the generated ids, so the ids of the events are not set.
+ * This needs the PostgreSQL JDBC driver.
+ * </p>
+ */
+class EventLogCopyInserter {
+
+    private static final String COPY_STATEMENT =
+        "COPY nakadi_events.event_log "
+            + "(event_type, event_body_data, event_body_compressed, event_body_size, flow_id, created, last_modified, "
+            + "locked_by, locked_until, compaction_key, eid) "
+            + "FROM STDIN";
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    EventLogCopyInserter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the events, using the connection of the current transaction (if any). If writing the rows fails,
+     * the COPY is cancelled, so none of them are inserted.
+     */
+    void insert(Collection<EventLog> eventLogs) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            String now = Instant.now().toString();
+            PGCopyOutputStream copyStream = new PGCopyOutputStream(pgConnection, COPY_STATEMENT, BUFFER_SIZE);
+            // not closed on failure, as closing the stream would end the COPY with the rows written so far
+            Writer writer = new BufferedWriter(new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            try {
+                for (EventLog eventLog : eventLogs) {
+                    writeRow(writer, eventLog, now);
+                }
+                writer.close();
+            } catch (IOException e) {
+                cancelCopy(copyStream, e);
+                throw new DataAccessResourceFailureException("Could not copy events into the event log", e);
+            } catch (RuntimeException e) {
+                cancelCopy(copyStream, e);
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    private static void writeRow(Writer writer, EventLog eventLog, String now) throws IOException {
+        writeColumn(writer, eventLog.getEventType());
+        writer.write('\t');
+        writeColumn(writer, eventLog.getEventBodyData());
+        writer.write('\t');
+        writeBinaryColumn(writer, eventLog.getEventBodyCompressed());
+        writer.write('\t');
+        Integer eventBodySize = EventLogBuilderImpl.eventBodySize(eventLog);
+        writeColumn(writer, eventBodySize == null ? null : eventBodySize.toString());
+        writer.write('\t');
+        writeColumn(writer, eventLog.getFlowId());
+        writer.write('\t');
+        writeColumn(writer, now);
+        writer.write('\t');
+        writeColumn(writer, now);
+        writer.write('\t');
+        writeColumn(writer, eventLog.getLockedBy());
+        writer.write('\t');
+        writeColumn(writer, eventLog.getLockedUntil() == null ? null : eventLog.getLockedUntil().toString());
+        writer.write('\t');
+        writeColumn(writer, eventLog.getCompactionKey());
+        writer.write('\t');
+        writeColumn(writer, eventLog.getEid() == null ? null : eventLog.getEid().toString());
+        writer.write('\n');
+    }
+
+    private static void cancelCopy(PGCopyOutputStream copyStream, Exception cause) {
+        if (copyStream.isActive()) {
+            try {
+                copyStream.cancelCopy();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Writes a bytea value in the hex format (with the backslash escaped for the COPY text format).
+     */
+    static void writeBinaryColumn(Writer writer, byte[] value) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+        writer.write("\\\\x");
+        writer.write(HexFormat.of().formatHex(value));
+    }
+
+    /**
+     * Writes a value in the COPY text format, where backslash, tab, newline and carriage return have to be
+     * escaped, and {@code \N} stands for null.
+     */
+    static void writeColumn(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> writer.write("\\\\");
+                case '\t' -> writer.write("\\t");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                default -> writer.write(c);
+            }
+        }
+    }
+}
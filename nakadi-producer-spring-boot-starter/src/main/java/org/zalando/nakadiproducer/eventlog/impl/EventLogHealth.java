@@ -0,0 +1,50 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A snapshot of the state of the event log, as determined by the {@link EventLogHealthMonitor}. All numbers are
+ * approximations taken from cheap sources (id range, planner statistics), not exact counts.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class EventLogHealth {
+
+    /**
+     * When this snapshot was taken.
+     */
+    private final Instant measuredAt;
+
+    /**
+     * The approximate number of events in the event log, i.e. not yet sent (or at least not yet deleted).
+     */
+    private final long backlog;
+
+    /**
+     * The approximate backlog of the most common event types (by planner statistics), most common first.
+     * Empty if the table was not analyzed yet.
+     */
+    private final Map<String, Long> backlogByEventType;
+
+    /**
+     * The age of the oldest event in the event log, or {@code null} if it is empty.
+     */
+    private final Duration oldestEventAge;
+
+    /**
+     * The number of events which are currently locked by some instance (not counting the ones waiting for a retry).
+     */
+    private final long lockedEvents;
+
+    /**
+     * The share of dead tuples in the event log table (and its partitions), between 0 and 1.
+     */
+    private final double deadTupleRatio;
+}
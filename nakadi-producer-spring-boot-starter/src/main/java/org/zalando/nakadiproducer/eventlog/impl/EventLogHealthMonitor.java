@@ -0,0 +1,173 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically determines the state of the event log (backlog, age of the oldest event, locked events, bloat)
+ * and keeps it as an {@link EventLogHealth} snapshot for gauges and health checks.
+ * <p>
+ * Counting the rows of the event log is expensive exactly when it matters (i.e. when there is a big backlog),
+ * so all measurements use cheap sources instead: the id range and the first row via the primary key, the
+ * planner statistics in {@code pg_class} and {@code pg_stats}, and the {@code locked_until} index. Partitions
+ * of the event log (if it is partitioned) are included.
+ */
+@Slf4j
+public class EventLogHealthMonitor {
+
+    private static final String RELATIONS =
+            "(c.oid = 'nakadi_events.event_log'::regclass"
+            + " OR c.oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'nakadi_events.event_log'::regclass))";
+
+    private static final String ID_RANGE_QUERY = "SELECT min(id), max(id) FROM nakadi_events.event_log";
+
+    // null if any (leaf) table was never analyzed, as its reltuples are not meaningful then
+    private static final String ESTIMATED_ROWS_QUERY =
+            "SELECT CASE WHEN bool_and(c.reltuples >= 0) THEN sum(c.reltuples) END"
+            + " FROM pg_class c WHERE c.relkind = 'r' AND " + RELATIONS;
+
+    // the statistics of the parent table (inherited = true) cover all partitions
+    private static final String EVENT_TYPE_STATISTICS_QUERY =
+            "SELECT most_common_vals::text::text[], most_common_freqs FROM pg_stats"
+            + " WHERE schemaname = 'nakadi_events' AND tablename = 'event_log' AND attname = 'event_type'"
+            + " ORDER BY inherited DESC LIMIT 1";
+
+    private static final String OLDEST_EVENT_QUERY =
+            "SELECT created FROM nakadi_events.event_log ORDER BY id LIMIT 1";
+
+    private static final String LOCKED_EVENTS_QUERY =
+            "SELECT count(*) FROM nakadi_events.event_log WHERE locked_by IS NOT NULL AND locked_until > now()";
+
+    private static final String TUPLES_QUERY =
+            "SELECT coalesce(sum(s.n_live_tup), 0), coalesce(sum(s.n_dead_tup), 0)"
+            + " FROM pg_stat_user_tables s JOIN pg_class c ON c.oid = s.relid WHERE " + RELATIONS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int topEventTypes;
+    private final Clock clock;
+    private final List<Consumer<EventLogHealth>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile EventLogHealth health;
+
+    public EventLogHealthMonitor(JdbcTemplate jdbcTemplate, int topEventTypes) {
+        this(jdbcTemplate, topEventTypes, Clock.systemUTC());
+    }
+
+    /**
+     * @param topEventTypes the maximum number of event types for which the backlog is reported individually.
+     */
+    public EventLogHealthMonitor(JdbcTemplate jdbcTemplate, int topEventTypes, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.topEventTypes = topEventTypes;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the latest snapshot, or {@code null} if none could be taken yet.
+     */
+    public EventLogHealth getHealth() {
+        return health;
+    }
+
+    /**
+     * Registers a listener which is called with each new snapshot.
+     */
+    public void addListener(Consumer<EventLogHealth> listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${nakadi-producer.health-monitor-delay:30000}")
+    public void refresh() {
+        try {
+            EventLogHealth newHealth = measure();
+            health = newHealth;
+            listeners.forEach(listener -> listener.accept(newHealth));
+        } catch (DataAccessException e) {
+            log.warn("Could not determine the state of the event log, keeping the previous one.", e);
+        }
+    }
+
+    EventLogHealth measure() {
+        Instant now = clock.instant();
+        long backlog = estimateBacklog();
+        return new EventLogHealth(
+                now,
+                backlog,
+                estimateBacklogByEventType(backlog),
+                oldestEventAge(now),
+                lockedEvents(),
+                deadTupleRatio());
+    }
+
+    /**
+     * The number of ids in use is an upper bound of the number of events, and the planner's estimate is usually
+     * more precise, but can be outdated. So the smaller one of both is used.
+     */
+    private long estimateBacklog() {
+        Long idSpan = jdbcTemplate.queryForObject(ID_RANGE_QUERY, (rs, rowNum) -> {
+            long min = rs.getLong(1);
+            return rs.wasNull() ? 0L : rs.getLong(2) - min + 1;
+        });
+        Double estimatedRows = jdbcTemplate.queryForObject(ESTIMATED_ROWS_QUERY, Double.class);
+        if (idSpan == null || idSpan == 0) {
+            return 0;
+        }
+        return estimatedRows == null ? idSpan : Math.min(idSpan, Math.round(estimatedRows));
+    }
+
+    private Map<String, Long> estimateBacklogByEventType(long backlog) {
+        List<Map<String, Long>> result = jdbcTemplate.query(EVENT_TYPE_STATISTICS_QUERY, (rs, rowNum) -> {
+            Array valuesArray = rs.getArray(1);
+            Array frequenciesArray = rs.getArray(2);
+            if (valuesArray == null || frequenciesArray == null) {
+                return Collections.<String, Long>emptyMap();
+            }
+            String[] values = (String[]) valuesArray.getArray();
+            Float[] frequencies = (Float[]) frequenciesArray.getArray();
+            Map<String, Long> backlogByEventType = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(values.length, topEventTypes); i++) {
+                backlogByEventType.put(values[i], Math.round(frequencies[i] * backlog));
+            }
+            return backlogByEventType;
+        });
+        return result.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(result.get(0));
+    }
+
+    private Duration oldestEventAge(Instant now) {
+        List<Timestamp> created = jdbcTemplate.queryForList(OLDEST_EVENT_QUERY, Timestamp.class);
+        if (created.isEmpty()) {
+            return null;
+        }
+        Duration age = Duration.between(created.get(0).toInstant(), now);
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    private long lockedEvents() {
+        Long count = jdbcTemplate.queryForObject(LOCKED_EVENTS_QUERY, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private double deadTupleRatio() {
+        return jdbcTemplate.queryForObject(TUPLES_QUERY, (rs, rowNum) -> {
+            long live = rs.getLong(1);
+            long dead = rs.getLong(2);
+            return live + dead == 0 ? 0.0 : (double) dead / (live + dead);
+        });
+    }
+}
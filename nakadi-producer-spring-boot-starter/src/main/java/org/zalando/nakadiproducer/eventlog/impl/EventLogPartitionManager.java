@@ -0,0 +1,138 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the partitions of the event log, if it is partitioned by id (see the migration in
+ * {@code db_nakadiproducer/partitioning}). Partitions are created ahead of the id sequence, and partitions
+ * which can't get any new events anymore are detached and dropped as soon as all their events were sent.
+ */
+@Slf4j
+public class EventLogPartitionManager {
+
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('?(-?\\d+)'?\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long partitionSize;
+
+    /**
+     * @param partitionSize the number of ids covered by each partition.
+     */
+    public EventLogPartitionManager(JdbcTemplate jdbcTemplate, long partitionSize) {
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("partitionSize must be at least 1, but was " + partitionSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionSize = partitionSize;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${nakadi-producer.partition-maintenance-delay:60000}")
+    public void maintainPartitions() {
+        try {
+            createUpcomingPartitions();
+        } catch (DataAccessException e) {
+            log.warn("Could not create the upcoming event log partitions. New events might end up in "
+                    + "nakadi_events.event_log_default, which will prevent creating partitions for their ids.", e);
+        }
+        dropDrainedPartitions();
+    }
+
+    /**
+     * Makes sure that there are partitions for (at least) the next two partition sizes worth of ids.
+     */
+    void createUpcomingPartitions() {
+        long currentId = currentSequenceValue();
+        long upperBound = findPartitions().stream()
+                .filter(partition -> partition.upperBound != null)
+                .mapToLong(partition -> partition.upperBound)
+                .max()
+                .orElse(Math.floorDiv(currentId, partitionSize) * partitionSize);
+
+        while (upperBound < currentId + 2 * partitionSize && upperBound < Integer.MAX_VALUE) {
+            long from = upperBound;
+            long to = Math.min((Math.floorDiv(from, partitionSize) + 1) * partitionSize, Integer.MAX_VALUE);
+            String name = ("event_log_p" + from + "_" + to).replace('-', 'm');
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS nakadi_events.\"%s\" PARTITION OF nakadi_events.event_log "
+                            + "FOR VALUES FROM (%d) TO (%d)",
+                    name, from, to));
+            log.info("Created event log partition {} for ids from {} to {}", name, from, to);
+            upperBound = to;
+        }
+    }
+
+    /**
+     * Drops all partitions which are empty and whose ids were all handed out already, so that they can't
+     * get new events anymore.
+     */
+    void dropDrainedPartitions() {
+        long currentId = currentSequenceValue();
+        for (Partition partition : findPartitions()) {
+            if (partition.upperBound != null && partition.upperBound <= currentId && isEmpty(partition.name)) {
+                try {
+                    dropPartition(partition.name);
+                } catch (DataAccessException e) {
+                    log.warn("Could not drop event log partition {}, will try again later.", partition.name, e);
+                }
+            }
+        }
+    }
+
+    private void dropPartition(String name) {
+        // The emptiness is checked again with the lock held, as an event might have been inserted in the
+        // meantime. The lock timeout keeps inserts from waiting for long if the lock can't be acquired quickly.
+        jdbcTemplate.execute(String.format(
+                "DO $$ BEGIN "
+                        + "  SET LOCAL lock_timeout = '1s'; "
+                        + "  LOCK TABLE nakadi_events.event_log IN ACCESS EXCLUSIVE MODE; "
+                        + "  IF NOT EXISTS (SELECT 1 FROM nakadi_events.\"%1$s\") THEN "
+                        + "    ALTER TABLE nakadi_events.event_log DETACH PARTITION nakadi_events.\"%1$s\"; "
+                        + "    DROP TABLE nakadi_events.\"%1$s\"; "
+                        + "  END IF; "
+                        + "END $$",
+                name));
+        log.info("Dropped drained event log partition {}", name);
+    }
+
+    private boolean isEmpty(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                String.format("SELECT NOT EXISTS (SELECT 1 FROM nakadi_events.\"%s\")", name), Boolean.class));
+    }
+
+    private long currentSequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM nakadi_events.event_log_id_seq", Long.class);
+    }
+
+    List<Partition> findPartitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound "
+                        + "FROM pg_catalog.pg_inherits i JOIN pg_catalog.pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = 'nakadi_events.event_log'::regclass",
+                (rs, rowNum) -> new Partition(rs.getString("relname"), parseUpperBound(rs.getString("bound"))));
+    }
+
+    /**
+     * @return the (exclusive) upper bound of a range partition, or null for the default partition
+     *         or an unbounded range.
+     */
+    private static Long parseUpperBound(String bound) {
+        Matcher matcher = UPPER_BOUND.matcher(bound);
+        return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    @AllArgsConstructor
+    static class Partition {
+        final String name;
+        final Long upperBound;
+    }
+}
@@ -1,25 +1,84 @@
 package org.zalando.nakadiproducer.eventlog.impl;
 
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.SqlArrayValue;
+import org.zalando.nakadiproducer.eventlog.impl.batcher.QueryStatementBatcher;
 
 public class EventLogRepositoryImpl implements EventLogRepository {
 
+    /**
+     * The channel on which a notification is sent when events were persisted (if enabled).
+     */
+    public static final String NOTIFICATION_CHANNEL = "nakadi_producer_event_log";
+
+    /**
+     * Inserts several events with one multi-row INSERT statement (for a few fixed numbers of rows),
+     * returning the generated ids together with the ordinal of their event. (The rows returned by
+     * INSERT ... RETURNING have no guaranteed order, so the ids are drawn in a CTE next to the ordinals.)
+     */
+    private static final QueryStatementBatcher<int[]> INSERT_BATCHER = new QueryStatementBatcher<>(
+        "WITH input AS ("
+            + "  SELECT nextval(pg_get_serial_sequence('nakadi_events.event_log', 'id')) AS id, v.* "
+            + "  FROM (VALUES ",
+        "(CAST(:ordinal# AS INTEGER), CAST(:eventType# AS TEXT), CAST(:eventBodyData# AS TEXT), "
+            + "CAST(:eventBodyCompressed# AS BYTEA), CAST(:eventBodySize# AS INTEGER), CAST(:flowId# AS TEXT), "
+            + "CAST(:lockedBy# AS TEXT), CAST(:lockedUntil# AS TIMESTAMPTZ), CAST(:compactionKey# AS TEXT), "
+            + "CAST(:eid# AS UUID))",
+        ") AS v (ordinal, event_type, event_body_data, event_body_compressed, event_body_size, flow_id, "
+            + "        locked_by, locked_until, compaction_key, eid)"
+            + "), inserted AS ("
+            + "  INSERT INTO nakadi_events.event_log "
+            + "  (id, event_type, event_body_data, event_body_compressed, event_body_size, flow_id, created, "
+            + "   last_modified, locked_by, locked_until, compaction_key, eid) "
+            + "  SELECT id, event_type, event_body_data, event_body_compressed, event_body_size, flow_id, "
+            + "         CAST(:now AS TIMESTAMPTZ), CAST(:now AS TIMESTAMPTZ), locked_by, locked_until, compaction_key, eid "
+            + "  FROM input"
+            + ") "
+            + "SELECT ordinal, id FROM input",
+        (row, n) -> new int[] {row.getInt("ordinal"), row.getInt("id")});
+
     private NamedParameterJdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate streamingJdbcTemplate;
     private int lockSize;
+    private boolean orderedClaim;
+    private boolean notifyOnPersist;
+    private int copyThreshold;
+    private long lockByteBudget;
+    private EventLogCopyInserter copyInserter;
 
     public EventLogRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, int lockSize) {
+        this(jdbcTemplate, EventLogRepositorySettings.builder().lockSize(lockSize).build());
+    }
+
+    public EventLogRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, EventLogRepositorySettings settings) {
         this.jdbcTemplate = jdbcTemplate;
-        this.lockSize = lockSize;
+        this.lockSize = settings.getLockSize();
+        this.orderedClaim = settings.isOrderedClaim();
+        this.notifyOnPersist = settings.isNotifyOnPersist();
+        this.copyThreshold = settings.getCopyThreshold();
+        this.lockByteBudget = settings.getLockByteBudget();
+        this.copyInserter = copyThreshold > 0 ? new EventLogCopyInserter(jdbcTemplate.getJdbcTemplate()) : null;
+        // a separate template, so the fetch size doesn't apply to the application's own queries.
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streamingTemplate.setFetchSize(settings.getFetchSize());
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
     }
 
     @Override
@@ -28,34 +87,181 @@ public class EventLogRepositoryImpl implements EventLogRepository {
         namedParameterMap.put("lockedBy", lockedBy);
         namedParameterMap.put("lockedUntil", toSqlTimestamp(lockedUntil));
         return jdbcTemplate.query(
-            "SELECT * FROM nakadi_events.event_log where locked_by = :lockedBy and locked_until > :lockedUntil",
+            "SELECT " + EventLogRowMapper.COLUMNS + " FROM nakadi_events.event_log where locked_by = :lockedBy and locked_until > :lockedUntil",
+            namedParameterMap,
+            new EventLogRowMapper()
+        );
+    }
+
+    @Override
+    public Stream<EventLog> streamByLockedByAndLockedUntilGreaterThan(String lockedBy, Instant lockedUntil) {
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        namedParameterMap.put("lockedBy", lockedBy);
+        namedParameterMap.put("lockedUntil", toSqlTimestamp(lockedUntil));
+        return streamingJdbcTemplate.queryForStream(
+            "SELECT " + EventLogRowMapper.COLUMNS + " FROM nakadi_events.event_log where locked_by = :lockedBy and locked_until > :lockedUntil ORDER BY id",
             namedParameterMap,
-            new BeanPropertyRowMapper<>(EventLog.class)
+            new EventLogRowMapper()
         );
     }
 
     @Override
     public void lockSomeMessages(String lockId, Instant now, Instant lockExpires) {
+        lockSomeMessages(lockId, now, lockExpires, lockSize);
+    }
+
+    @Override
+    public void lockSomeMessages(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        jdbcTemplate.update(lockStatement(lockId, now, lockExpires, lockSize, namedParameterMap), namedParameterMap);
+    }
+
+    @Override
+    public Collection<Integer> claimSomeMessageIds(String lockId, Instant now, Instant lockExpires) {
+        return claimSomeMessageIds(lockId, now, lockExpires, lockSize);
+    }
+
+    @Override
+    public Collection<Integer> claimSomeMessageIds(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        return jdbcTemplate.queryForList(
+            lockStatement(lockId, now, lockExpires, lockSize, namedParameterMap) + "RETURNING id",
+            namedParameterMap,
+            Integer.class
+        );
+    }
+
+    @Override
+    public Collection<EventLog> claimSomeMessages(String lockId, Instant now, Instant lockExpires) {
+        return claimSomeMessages(lockId, now, lockExpires, lockSize);
+    }
+
+    @Override
+    public Collection<EventLog> claimSomeMessages(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        List<EventLog> events = jdbcTemplate.query(
+            lockStatement(lockId, now, lockExpires, lockSize, namedParameterMap) + "RETURNING " + EventLogRowMapper.COLUMNS,
+            namedParameterMap,
+            new EventLogRowMapper()
+        );
+        // RETURNING doesn't guarantee any order
+        events.sort(Comparator.comparing(EventLog::getId));
+        return events;
+    }
+
+    @Override
+    public Collection<EventLog> claimMessages(String lockId, Collection<Integer> ids, Instant now, Instant lockExpires) {
         Map<String, Object> namedParameterMap = new HashMap<>();
         namedParameterMap.put("lockId", lockId);
+        namedParameterMap.put("ids", new SqlArrayValue("int4", ids.toArray()));
+        namedParameterMap.put("now", toSqlTimestamp(now));
+        namedParameterMap.put("lockExpires", toSqlTimestamp(lockExpires));
+
+        List<EventLog> events = jdbcTemplate.query(
+            "UPDATE nakadi_events.event_log "
+                + "SET locked_by = :lockId, locked_until = :lockExpires "
+                + "WHERE id IN (SELECT id "
+                + "             FROM nakadi_events.event_log "
+                + "             WHERE id = ANY(:ids) AND (locked_until IS null OR locked_until < :now) "
+                + "             FOR UPDATE SKIP LOCKED) "
+                + "RETURNING " + EventLogRowMapper.COLUMNS,
+            namedParameterMap,
+            new EventLogRowMapper()
+        );
+        events.sort(Comparator.comparing(EventLog::getId));
+        return events;
+    }
+
+    @Override
+    public boolean isClaimLimitReached(int lockedEvents, long lockedBytes, int lockSize) {
+        int effectiveLockSize = lockSize > 0 ? lockSize : this.lockSize;
+        if (effectiveLockSize > 0 && lockedEvents >= effectiveLockSize) {
+            return true;
+        }
+        // the next event was left out if it didn't fit into the rest of the budget. Its size is not known, so it is
+        // assumed to be the average size of the locked ones.
+        return lockByteBudget > 0 && lockedEvents > 0 && lockedBytes + lockedBytes / lockedEvents > lockByteBudget;
+    }
+
+    private String lockStatement(String lockId, Instant now, Instant lockExpires, int lockSize,
+                                 Map<String, Object> namedParameterMap) {
+        namedParameterMap.put("lockId", lockId);
         namedParameterMap.put("now", toSqlTimestamp(now));
         namedParameterMap.put("lockExpires", toSqlTimestamp(lockExpires));
 
         StringBuilder optionalLockSizeClause = new StringBuilder();
+        if (orderedClaim) {
+          // backed by the primary key, so the oldest unlocked events are found without a sort
+          optionalLockSizeClause.append("ORDER BY id ");
+        }
         if (lockSize > 0) {
           optionalLockSizeClause.append("LIMIT :lockSize");
           namedParameterMap.put("lockSize", lockSize);
         }
 
-        jdbcTemplate.update(
-            "UPDATE nakadi_events.event_log "
+        if (lockByteBudget > 0) {
+          namedParameterMap.put("lockByteBudget", lockByteBudget);
+          // the candidates are limited by count as usual, then cut off by the running sum of their sizes.
+          // Events stored before the size column existed are measured on the fly.
+          return "UPDATE nakadi_events.event_log "
+                  + "SET locked_by = :lockId, locked_until = :lockExpires "
+                  + "WHERE id IN (SELECT id "
+                  + "             FROM (SELECT id, event_size, SUM(event_size) OVER (ORDER BY id) AS running_size "
+                  + "                   FROM (SELECT id, COALESCE(event_body_size, octet_length(event_body_data), 0) AS event_size "
+                  + "                         FROM nakadi_events.event_log "
+                  + "                         WHERE locked_until IS null OR locked_until < :now "
+                  + optionalLockSizeClause
+                  + "                         FOR UPDATE SKIP LOCKED) candidates) sized "
+                  + "             WHERE running_size <= :lockByteBudget OR running_size = event_size) ";
+        }
+
+        return "UPDATE nakadi_events.event_log "
                 + "SET locked_by = :lockId, locked_until = :lockExpires "
                 + "WHERE id IN (SELECT id "
                 + "             FROM nakadi_events.event_log "
                 + "             WHERE locked_until IS null OR locked_until < :now "
                 + optionalLockSizeClause
-                + "             FOR UPDATE SKIP LOCKED) ",
-            namedParameterMap
+                + "             FOR UPDATE SKIP LOCKED) ";
+    }
+
+    @Override
+    public void scheduleRetry(Collection<EventLog> eventLogs, Instant now, Duration initialBackoff, Duration maxBackoff) {
+        if (eventLogs.isEmpty()) {
+            return;
+        }
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        namedParameterMap.put("ids", new SqlArrayValue("int4", eventLogs.stream().map(EventLog::getId).toArray()));
+        namedParameterMap.put("lockIds", new SqlArrayValue("text",
+                eventLogs.stream().map(EventLog::getLockedBy).filter(Objects::nonNull).distinct().toArray()));
+        namedParameterMap.put("now", toSqlTimestamp(now));
+        namedParameterMap.put("initialBackoff", initialBackoff.toMillis());
+        namedParameterMap.put("maxBackoff", maxBackoff.toMillis());
+
+        // the exponent is capped, so the backoff can't overflow before being capped itself. The timestamp is bound
+        // without a type, so it needs a cast to not be taken for an interval.
+        jdbcTemplate.update(
+                "UPDATE nakadi_events.event_log "
+                    + "SET attempts = attempts + 1, locked_by = null, "
+                    + "    locked_until = CAST(:now AS TIMESTAMPTZ) + LEAST(:maxBackoff, :initialBackoff * power(2, LEAST(attempts, 30))) "
+                    + "                          * INTERVAL '1 millisecond' "
+                    + "WHERE id = ANY(:ids) AND locked_by = ANY(:lockIds)",
+                namedParameterMap
+        );
+    }
+
+    @Override
+    public void releaseLocks(String lockId, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        namedParameterMap.put("lockId", lockId);
+        namedParameterMap.put("ids", new SqlArrayValue("int4", ids.toArray()));
+        // by id, as there is no index on locked_by
+        jdbcTemplate.update(
+                "UPDATE nakadi_events.event_log SET locked_by = null, locked_until = null "
+                    + "WHERE id = ANY(:ids) AND locked_by = :lockId",
+                namedParameterMap
         );
     }
 
@@ -66,14 +272,16 @@ public class EventLogRepositoryImpl implements EventLogRepository {
 
     @Override
     public void delete(Collection<EventLog> eventLogs) {
-        MapSqlParameterSource[] namedParameterMaps = eventLogs.stream()
-                .map(eventLog ->
-                    new MapSqlParameterSource().addValue("id", eventLog.getId())
-                ).toArray(MapSqlParameterSource[]::new);
-
-        jdbcTemplate.batchUpdate(
-                "DELETE FROM nakadi_events.event_log where id = :id",
-                namedParameterMaps
+        if (eventLogs.isEmpty()) {
+            return;
+        }
+        Map<String, Object> namedParameterMap = new HashMap<>();
+        namedParameterMap.put("ids", new SqlArrayValue("int4", eventLogs.stream().map(EventLog::getId).toArray()));
+
+        // one statement for all events, instead of a JDBC batch with one statement per event
+        jdbcTemplate.update(
+                "DELETE FROM nakadi_events.event_log where id = ANY(:ids)",
+                namedParameterMap
         );
     }
 
@@ -84,31 +292,43 @@ public class EventLogRepositoryImpl implements EventLogRepository {
 
     @Override
     public void persist(Collection<EventLog> eventLogs) {
-        MapSqlParameterSource[] namedParameterMaps = eventLogs.stream()
-            .map(eventLog -> {
-              Timestamp now = toSqlTimestamp(Instant.now());
+        if (copyInserter != null && eventLogs.size() >= copyThreshold) {
+            copyInserter.insert(eventLogs);
+        } else {
+            insert(eventLogs);
+        }
+
+        if (notifyOnPersist && !eventLogs.isEmpty()) {
+            jdbcTemplate.getJdbcTemplate().execute("NOTIFY " + NOTIFICATION_CHANNEL);
+        }
+    }
+
+    private void insert(Collection<EventLog> eventLogs) {
+        MapSqlParameterSource commonArguments = new MapSqlParameterSource();
+        commonArguments.addValue("now", toSqlTimestamp(Instant.now()));
+
+        List<EventLog> events = List.copyOf(eventLogs);
+        Stream<MapSqlParameterSource> repeatedInputs = IntStream.range(0, events.size())
+            .mapToObj(ordinal -> {
+              EventLog eventLog = events.get(ordinal);
               MapSqlParameterSource namedParameterMap = new MapSqlParameterSource();
-              namedParameterMap.addValue("eventType", eventLog.getEventType());
-              namedParameterMap.addValue("eventBodyData", eventLog.getEventBodyData());
-              namedParameterMap.addValue("flowId", eventLog.getFlowId());
-              namedParameterMap.addValue("created", now);
-              namedParameterMap.addValue("lastModified", now);
-              namedParameterMap.addValue("lockedBy", eventLog.getLockedBy());
-              namedParameterMap.addValue("lockedUntil", eventLog.getLockedUntil());
-              namedParameterMap.addValue("compactionKey", eventLog.getCompactionKey());
-              namedParameterMap.addValue("eid", eventLog.getEid());
+              namedParameterMap.addValue("ordinal#", ordinal);
+              namedParameterMap.addValue("eventType#", eventLog.getEventType());
+              namedParameterMap.addValue("eventBodyData#", eventLog.getEventBodyData());
+              namedParameterMap.addValue("eventBodyCompressed#", eventLog.getEventBodyCompressed(), Types.BINARY);
+              // measured here instead of in the database, so the body isn't sent twice
+              namedParameterMap.addValue("eventBodySize#", EventLogBuilderImpl.eventBodySize(eventLog), Types.INTEGER);
+              namedParameterMap.addValue("flowId#", eventLog.getFlowId());
+              namedParameterMap.addValue("lockedBy#", eventLog.getLockedBy());
+              namedParameterMap.addValue("lockedUntil#", toSqlTimestamp(eventLog.getLockedUntil()));
+              namedParameterMap.addValue("compactionKey#", eventLog.getCompactionKey());
+              namedParameterMap.addValue("eid#", eventLog.getEid());
               return namedParameterMap;
-            })
-            .toArray(MapSqlParameterSource[]::new);
+            });
 
-      jdbcTemplate.batchUpdate(
-          "INSERT INTO " +
-              "    nakadi_events.event_log " +
-              "    (event_type, event_body_data, flow_id, created, last_modified, locked_by, locked_until, compaction_key, eid)" +
-              "VALUES " +
-              "    (:eventType, :eventBodyData, :flowId, :created, :lastModified, :lockedBy, :lockedUntil, :compactionKey, :eid)",
-          namedParameterMaps
-      );
+        try (Stream<int[]> ids = INSERT_BATCHER.queryForStream(jdbcTemplate, commonArguments, repeatedInputs)) {
+            ids.forEach(ordinalAndId -> events.get(ordinalAndId[0]).setId(ordinalAndId[1]));
+        }
     }
 
     private Timestamp toSqlTimestamp(Instant now) {
@@ -129,9 +349,9 @@ public class EventLogRepositoryImpl implements EventLogRepository {
         namedParameterMap.put("id", id);
         try {
             return jdbcTemplate.queryForObject(
-                "SELECT * FROM nakadi_events.event_log where id = :id",
+                "SELECT " + EventLogRowMapper.COLUMNS + " FROM nakadi_events.event_log where id = :id",
                 namedParameterMap,
-                new BeanPropertyRowMapper<>(EventLog.class)
+                new EventLogRowMapper()
             );
         } catch (EmptyResultDataAccessException ignored) {
             return null;
@@ -0,0 +1,50 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The settings of an {@link EventLogRepositoryImpl}.
+ */
+@Builder
+@Getter
+@ToString
+public class EventLogRepositorySettings {
+
+    /**
+     * The number of events locked at once, or 0 for no limit.
+     */
+    @Builder.Default
+    private final int lockSize = 1000;
+
+    /**
+     * The number of rows fetched at once when streaming the locked events.
+     */
+    @Builder.Default
+    private final int fetchSize = 100;
+
+    /**
+     * If true, the oldest events (by id) are locked first. Otherwise, Postgres picks any unlocked events, which can
+     * let old events starve under a backlog.
+     */
+    private final boolean orderedClaim;
+
+    /**
+     * If true, a notification is sent on {@link EventLogRepositoryImpl#NOTIFICATION_CHANNEL} whenever events are
+     * persisted. Postgres delivers it when the transaction commits (at most once per transaction).
+     */
+    private final boolean notifyOnPersist;
+
+    /**
+     * If greater than 0, collections of at least this many events are persisted using Postgres' COPY command instead
+     * of a batched INSERT. The ids of these events are not set then. This needs the PostgreSQL JDBC driver.
+     */
+    private final int copyThreshold;
+
+    /**
+     * If greater than 0, the events locked at once are also limited by the sum of their body sizes (in bytes): events
+     * are locked (by id) until the next one would exceed the budget, but at least one event.
+     */
+    private final long lockByteBudget;
+}
@@ -0,0 +1,59 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Maps the rows of queries selecting {@link #COLUMNS} to event logs, by column index and without reflection.
+ * <p>
+ * Event types and flow ids usually repeat within the rows of one query, so each distinct value is only kept in
+ * memory once (per mapper instance). Therefore, a new instance should be used for each query.
+ * </p>
+ */
+class EventLogRowMapper implements RowMapper<EventLog> {
+
+    /**
+     * The columns (in this order) which need to be selected for this mapper.
+     */
+    static final String COLUMNS = "id, event_type, event_body_data, event_body_compressed, flow_id, created, "
+        + "last_modified, locked_by, locked_until, compaction_key, eid, event_body_size, attempts";
+
+    private final Map<String, String> deduplicatedValues = new HashMap<>();
+
+    @Override
+    public EventLog mapRow(ResultSet rs, int rowNum) throws SQLException {
+        EventLog eventLog = new EventLog();
+        eventLog.setId(rs.getInt(1));
+        eventLog.setEventType(deduplicate(rs.getString(2)));
+        eventLog.setEventBodyData(rs.getString(3));
+        eventLog.setEventBodyCompressed(rs.getBytes(4));
+        eventLog.setFlowId(deduplicate(rs.getString(5)));
+        eventLog.setCreated(toInstant(rs.getTimestamp(6)));
+        eventLog.setLastModified(toInstant(rs.getTimestamp(7)));
+        eventLog.setLockedBy(deduplicate(rs.getString(8)));
+        eventLog.setLockedUntil(toInstant(rs.getTimestamp(9)));
+        eventLog.setCompactionKey(rs.getString(10));
+        eventLog.setEid(rs.getObject(11, UUID.class));
+        eventLog.setEventBodySize(rs.getObject(12, Integer.class));
+        eventLog.setAttempts(rs.getObject(13, Integer.class));
+        return eventLog;
+    }
+
+    private String deduplicate(String value) {
+        if (value == null) {
+            return null;
+        }
+        return deduplicatedValues.computeIfAbsent(value, v -> v);
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
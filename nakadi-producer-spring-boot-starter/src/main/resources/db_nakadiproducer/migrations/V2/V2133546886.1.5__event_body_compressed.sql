@@ -0,0 +1,3 @@
+-- Event bodies can be stored compressed instead of as text. Existing events keep their text body.
+ALTER TABLE nakadi_events.event_log ADD COLUMN event_body_compressed BYTEA NULL;
+ALTER TABLE nakadi_events.event_log ALTER COLUMN event_body_data DROP NOT NULL;
@@ -0,0 +1,3 @@
+-- The length of the (uncompressed) event body in bytes, so locking can be limited by size without reading
+-- the bodies. It is null for events stored before.
+ALTER TABLE nakadi_events.event_log ADD COLUMN event_body_size INTEGER NULL;
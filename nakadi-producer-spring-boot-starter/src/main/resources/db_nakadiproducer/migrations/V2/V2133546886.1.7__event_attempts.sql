@@ -0,0 +1,3 @@
+-- The number of failed attempts to send the event. After a failed attempt, locked_until (with locked_by being
+-- null) is the time of the next attempt.
+ALTER TABLE nakadi_events.event_log ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,39 @@
+-- Replaces nakadi_events.event_log by a table partitioned by id. The existing table (with all its events) is kept
+-- as the first partition, so no data needs to be copied. Further partitions are created by the application.
+
+ALTER TABLE nakadi_events.event_log RENAME TO event_log_unpartitioned;
+ALTER INDEX nakadi_events.event_log_pkey RENAME TO event_log_unpartitioned_pkey;
+ALTER INDEX nakadi_events.event_log_locked_until_index RENAME TO event_log_unpartitioned_locked_until_index;
+
+CREATE TABLE nakadi_events.event_log (
+  LIKE nakadi_events.event_log_unpartitioned INCLUDING DEFAULTS,
+  PRIMARY KEY (id)
+) PARTITION BY RANGE (id);
+
+ALTER SEQUENCE nakadi_events.event_log_id_seq OWNED BY nakadi_events.event_log.id;
+
+CREATE INDEX event_log_locked_until_index ON nakadi_events.event_log (locked_until);
+
+DO $$
+DECLARE
+  upper_bound BIGINT;
+BEGIN
+  SELECT GREATEST(
+           (SELECT COALESCE(MAX(id), 0) FROM nakadi_events.event_log_unpartitioned),
+           (SELECT last_value FROM nakadi_events.event_log_id_seq)
+         ) + 1
+    INTO upper_bound;
+  -- with a validated constraint matching the partition bounds, attaching doesn't need to scan the table again
+  EXECUTE format('ALTER TABLE nakadi_events.event_log_unpartitioned ADD CONSTRAINT event_log_unpartitioned_id_range '
+                 'CHECK (id IS NOT NULL AND id < %s) NOT VALID', upper_bound);
+  ALTER TABLE nakadi_events.event_log_unpartitioned VALIDATE CONSTRAINT event_log_unpartitioned_id_range;
+  EXECUTE format('ALTER TABLE nakadi_events.event_log ATTACH PARTITION nakadi_events.event_log_unpartitioned '
+                 'FOR VALUES FROM (MINVALUE) TO (%s)', upper_bound);
+  -- the partition constraint covers it now
+  ALTER TABLE nakadi_events.event_log_unpartitioned DROP CONSTRAINT event_log_unpartitioned_id_range;
+END $$;
+
+-- catches events whose partition was not created in time
+CREATE TABLE nakadi_events.event_log_default PARTITION OF nakadi_events.event_log DEFAULT;
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON nakadi_events.event_log TO PUBLIC;
@@ -0,0 +1,78 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.transmission.impl.TransmissionRun;
+
+public class AdaptiveEventTransmissionSchedulerTest {
+
+    private final EventTransmitter eventTransmitter = mock(EventTransmitter.class);
+    private final AdaptiveEventTransmissionScheduler scheduler =
+            new AdaptiveEventTransmissionScheduler(eventTransmitter, true, 100, 1000);
+
+    @Test
+    public void shouldSendAgainRightAwayAsLongAsTheLockWasFull() {
+        when(eventTransmitter.transmit()).thenReturn(run(10, true), run(7, true), run(3, false));
+
+        scheduler.sendEvents();
+
+        verify(eventTransmitter, times(3)).transmit();
+        assertThat(scheduler.getCurrentDelay(), is(100L));
+    }
+
+    @Test
+    public void shouldStopSendingRightAwayAfterTheMaximumNumberOfRuns() {
+        AdaptiveEventTransmissionScheduler cappedScheduler =
+                new AdaptiveEventTransmissionScheduler(eventTransmitter, true, 100, 1000, 2);
+        when(eventTransmitter.transmit()).thenReturn(run(10, true));
+
+        cappedScheduler.sendEvents();
+
+        verify(eventTransmitter, times(2)).transmit();
+        assertThat(cappedScheduler.getCurrentDelay(), is(100L));
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyUpToTheMaximumWhenNoEventsWereFound() {
+        when(eventTransmitter.transmit()).thenReturn(run(0, false));
+
+        scheduler.sendEvents();
+        assertThat(scheduler.getCurrentDelay(), is(200L));
+        scheduler.sendEvents();
+        assertThat(scheduler.getCurrentDelay(), is(400L));
+        scheduler.sendEvents();
+        scheduler.sendEvents();
+        assertThat(scheduler.getCurrentDelay(), is(1000L));
+    }
+
+    @Test
+    public void shouldResetTheDelayWhenEventsWereFoundAgain() {
+        when(eventTransmitter.transmit()).thenReturn(run(0, false), run(0, false), run(1, false));
+
+        scheduler.sendEvents();
+        scheduler.sendEvents();
+        scheduler.sendEvents();
+
+        assertThat(scheduler.getCurrentDelay(), is(100L));
+    }
+
+    @Test
+    public void shouldBackOffWhenSendingFails() {
+        when(eventTransmitter.transmit()).thenThrow(new IllegalStateException("database down"));
+
+        scheduler.sendEvents();
+
+        assertThat(scheduler.getCurrentDelay(), is(200L));
+    }
+
+    private static TransmissionRun run(int lockedEvents, boolean lockLimitReached) {
+        return new TransmissionRun(lockedEvents, lockLimitReached);
+    }
+}
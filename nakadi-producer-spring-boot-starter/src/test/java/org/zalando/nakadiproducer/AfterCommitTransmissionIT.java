@@ -0,0 +1,81 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.util.Fixture;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:false",
+        "nakadi-producer.after-commit-transmission-enabled=true"
+    }
+)
+public class AfterCommitTransmissionIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventLogRepository eventLogRepository;
+
+    @Autowired
+    private MockNakadiPublishingClient nakadiClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    @AfterEach
+    public void clearNakadiEvents() {
+        eventLogRepository.deleteAll();
+        nakadiClient.clearSentEvents();
+    }
+
+    @Test
+    public void eventsAreSentAfterCommitWithoutPolling() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(1, "code1"));
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(2, "code2"));
+            assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), is(empty()));
+        });
+
+        assertThat(awaitSentEvents(2), hasSize(2));
+    }
+
+    @Test
+    public void eventsOfRolledBackTransactionsAreNotSent() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(1, "code1"));
+            status.setRollbackOnly();
+        });
+        eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(2, "code2"));
+
+        assertThat(awaitSentEvents(1), hasSize(1));
+    }
+
+    private List<String> awaitSentEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        List<String> sentEvents = nakadiClient.getSentEvents(MY_EVENT_TYPE);
+        while (sentEvents.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            sentEvents = nakadiClient.getSentEvents(MY_EVENT_TYPE);
+        }
+        return sentEvents;
+    }
+}
@@ -0,0 +1,93 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealth;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogHealthMonitor;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.util.Fixture;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:false",
+        "nakadi-producer.health-monitor-enabled=true",
+        "nakadi-producer.health-monitor-delay=3600000"
+    }
+)
+public class EventLogHealthMonitorIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventLogRepository eventLogRepository;
+
+    @Autowired
+    private EventLogHealthMonitor monitor;
+
+    @Autowired
+    private EventLogHealthIndicator healthIndicator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void clearNakadiEvents() {
+        eventLogRepository.deleteAll();
+    }
+
+    @Test
+    public void reportsEmptyEventLog() {
+        monitor.refresh();
+
+        EventLogHealth health = monitor.getHealth();
+        assertThat(health.getBacklog(), is(0L));
+        assertThat(health.getOldestEventAge(), is(nullValue()));
+        assertThat(health.getLockedEvents(), is(0L));
+        assertThat(healthIndicator.health().getStatus(), is(Status.UP));
+    }
+
+    @Test
+    public void reportsBacklogAndOldestEvent() {
+        for (int i = 1; i <= 3; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+        jdbcTemplate.execute("ANALYZE nakadi_events.event_log");
+        monitor.refresh();
+
+        EventLogHealth health = monitor.getHealth();
+        assertThat(health.getBacklog(), is(3L));
+        assertThat(health.getBacklogByEventType(), hasEntry(MY_EVENT_TYPE, 3L));
+        assertThat(health.getOldestEventAge(), is(notNullValue()));
+        assertThat(health.getLockedEvents(), is(0L));
+
+        assertThat(new EventLogHealthIndicator(monitor, null, 2).health().getStatus(), is(Status.DOWN));
+        assertThat(new EventLogHealthIndicator(monitor, Duration.ofHours(1), 0).health().getStatus(), is(Status.UP));
+    }
+
+    @Test
+    public void countsLockedEvents() {
+        for (int i = 1; i <= 3; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+        jdbcTemplate.update("UPDATE nakadi_events.event_log SET locked_by = 'me', locked_until = now() + interval '1 hour'"
+                + " WHERE id = (SELECT min(id) FROM nakadi_events.event_log)");
+        monitor.refresh();
+
+        assertThat(monitor.getHealth().getLockedEvents(), is(1L));
+    }
+}
@@ -0,0 +1,54 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+public class MicrometerEventTransmissionMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerEventTransmissionMetrics metrics = new MicrometerEventTransmissionMetrics(registry);
+
+    @Test
+    public void countsEventsPerTypeAndResult() {
+        metrics.recordSentEvent("type1", Duration.ofSeconds(2));
+        metrics.recordSentEvent("type1", null);
+        metrics.recordFailedEvents("type1", 3);
+        metrics.recordSkippedEvent("type2");
+
+        assertThat(registry.get("nakadi.producer.events").tags("event_type", "type1", "result", "sent").counter().count(), is(2.0));
+        assertThat(registry.get("nakadi.producer.events").tags("event_type", "type1", "result", "failed").counter().count(), is(3.0));
+        assertThat(registry.get("nakadi.producer.events").tags("event_type", "type2", "result", "skipped").counter().count(), is(1.0));
+        assertThat(registry.get("nakadi.producer.event.age").tag("event_type", "type1").timer().count(), is(1L));
+    }
+
+    @Test
+    public void recordsBatchSizesAndLatencies() {
+        metrics.recordPublishing("type1", 10, 5000, Duration.ofMillis(30));
+        metrics.recordLocking(10, Duration.ofMillis(5));
+        metrics.recordDeletion(10, Duration.ofMillis(3));
+
+        assertThat(registry.get("nakadi.producer.publish").tag("event_type", "type1").timer().count(), is(1L));
+        assertThat(registry.get("nakadi.producer.batch.events").tag("event_type", "type1").summary().totalAmount(), is(10.0));
+        assertThat(registry.get("nakadi.producer.batch.bytes").tag("event_type", "type1").summary().totalAmount(), is(5000.0));
+        assertThat(registry.get("nakadi.producer.lock.events").summary().totalAmount(), is(10.0));
+        assertThat(registry.get("nakadi.producer.delete").timer().count(), is(1L));
+    }
+
+    @Test
+    public void registersTheMetersOfAnEventTypeOnlyOnce() {
+        metrics.recordSentEvent("type1", Duration.ofSeconds(2));
+        int meterCount = registry.getMeters().size();
+
+        metrics.recordSerialization("type1", Duration.ofMillis(1));
+        metrics.recordSentEvent("type1", Duration.ofSeconds(1));
+        metrics.recordPublishing("type1", 1, 100, Duration.ofMillis(30));
+
+        assertThat(registry.getMeters().size(), is(meterCount));
+        assertThat(registry.get("nakadi.producer.serialization").tag("event_type", "type1").timer().count(), is(1L));
+    }
+}
@@ -0,0 +1,81 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.util.Fixture;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:true",
+        "nakadi-producer.listen-notify-enabled=true",
+        "nakadi-producer.notification-fallback-polling-delay=3600000",
+        "nakadi-producer.lock-size=2"
+    }
+)
+public class NotificationTransmissionIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventLogRepository eventLogRepository;
+
+    @Autowired
+    private MockNakadiPublishingClient nakadiClient;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @BeforeEach
+    @AfterEach
+    public void clearNakadiEvents() {
+        eventLogRepository.deleteAll();
+        nakadiClient.clearSentEvents();
+    }
+
+    @Test
+    public void eventsAreSentWhenNotifiedWithoutPolling() throws InterruptedException {
+        assertThat(context.getBeanProvider(EventTransmissionScheduler.class).getIfAvailable(), nullValue());
+
+        eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(1, "code1"));
+
+        assertThat(awaitSentEvents(1), hasSize(1));
+    }
+
+    @Test
+    public void backlogLargerThanOneLockIsSentOnOneNotification() throws InterruptedException {
+        // one transaction, so only one notification
+        eventLogWriter.fireBusinessEvents(MY_EVENT_TYPE, List.of(
+            Fixture.mockPayload(1, "code1"),
+            Fixture.mockPayload(2, "code2"),
+            Fixture.mockPayload(3, "code3"),
+            Fixture.mockPayload(4, "code4"),
+            Fixture.mockPayload(5, "code5")));
+
+        assertThat(awaitSentEvents(5), hasSize(5));
+    }
+
+    private List<String> awaitSentEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        List<String> sentEvents = nakadiClient.getSentEvents(MY_EVENT_TYPE);
+        while (sentEvents.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            sentEvents = nakadiClient.getSentEvents(MY_EVENT_TYPE);
+        }
+        return sentEvents;
+    }
+}
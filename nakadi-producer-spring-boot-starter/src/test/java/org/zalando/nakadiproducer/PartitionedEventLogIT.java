@@ -0,0 +1,79 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogPartitionManager;
+import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.util.Fixture;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:false",
+        "nakadi-producer.partitioning-enabled=true",
+        "nakadi-producer.partition-size=5",
+        "nakadi-producer.partition-maintenance-delay=3600000"
+    }
+)
+public class PartitionedEventLogIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventTransmitter eventTransmitter;
+
+    @Autowired
+    private EventLogPartitionManager partitionManager;
+
+    @Autowired
+    private MockNakadiPublishingClient nakadiClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void partitionsAreCreatedAheadAndDroppedWhenDrained() {
+        for (int i = 1; i <= 12; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+        partitionManager.maintainPartitions();
+
+        // events are there, so nothing is dropped, but new partitions for upcoming ids were created
+        assertThat(partitionNames(), hasItems("event_log_unpartitioned", "event_log_p5_10", "event_log_p20_25"));
+
+        eventTransmitter.sendEvents();
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), hasSize(12));
+        partitionManager.maintainPartitions();
+
+        List<String> partitionNames = partitionNames();
+        assertThat(partitionNames, not(hasItem("event_log_unpartitioned")));
+        assertThat(partitionNames, not(hasItem("event_log_p5_10")));
+        // id 12 was handed out, so ids up to 14 can still end up in this partition
+        assertThat(partitionNames, hasItems("event_log_p10_15", "event_log_default"));
+
+        eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(13, "code13"));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM nakadi_events.event_log_p10_15", Integer.class),
+                is(1));
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_catalog.pg_inherits i JOIN pg_catalog.pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = 'nakadi_events.event_log'::regclass",
+                String.class);
+    }
+}
@@ -0,0 +1,91 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmissionService;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.transmission.impl.TransmissionRun;
+import org.zalando.nakadiproducer.util.Fixture;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:false",
+        "nakadi-producer.pipelined-transmission-enabled=true",
+        "nakadi-producer.lock-size=2",
+        "nakadi-producer.pipelined-transmission-max-locks=3"
+    }
+)
+public class PipelinedTransmissionIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventTransmitter eventTransmitter;
+
+    @Autowired
+    private EventTransmissionService eventTransmissionService;
+
+    @Autowired
+    private EventLogRepository eventLogRepository;
+
+    @Autowired
+    private MockNakadiPublishingClient nakadiClient;
+
+    @BeforeEach
+    @AfterEach
+    public void clearNakadiEvents() {
+        eventLogRepository.deleteAll();
+        nakadiClient.clearSentEvents();
+    }
+
+    @Test
+    public void allEventsAreSentInOneRunRegardlessOfLockSize() {
+        for (int i = 1; i <= 5; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+
+        eventTransmitter.sendEvents();
+
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), hasSize(5));
+        assertThat(eventTransmissionService.lockSomeEvents(), is(empty()));
+    }
+
+    @Test
+    public void runEndsAfterMaxLocksAndReportsTheLockLimit() {
+        for (int i = 1; i <= 7; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+
+        TransmissionRun firstRun = eventTransmitter.transmit();
+
+        assertThat(firstRun.getLockedEvents(), is(6));
+        assertThat(firstRun.isLockLimitReached(), is(true));
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), hasSize(6));
+
+        TransmissionRun secondRun = eventTransmitter.transmit();
+
+        assertThat(secondRun.getLockedEvents(), is(1));
+        assertThat(secondRun.isLockLimitReached(), is(false));
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), hasSize(7));
+    }
+
+    @Test
+    public void runEndsWhenThereAreNoEvents() {
+        eventTransmitter.sendEvents();
+
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), is(empty()));
+    }
+}
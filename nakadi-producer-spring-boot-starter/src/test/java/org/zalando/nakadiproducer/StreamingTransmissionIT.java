@@ -0,0 +1,74 @@
+package org.zalando.nakadiproducer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.zalando.nakadiproducer.eventlog.EventLogWriter;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmissionService;
+import org.zalando.nakadiproducer.transmission.impl.EventTransmitter;
+import org.zalando.nakadiproducer.util.Fixture;
+
+import static com.jayway.jsonpath.JsonPath.read;
+
+@SpringBootTest(
+    properties = {
+        "nakadi-producer.scheduled-transmission-enabled:false",
+        "nakadi-producer.streaming-transmission-enabled=true",
+        "nakadi-producer.lock-size=5",
+        "nakadi-producer.fetch-size=2"
+    }
+)
+public class StreamingTransmissionIT extends BaseMockedExternalCommunicationIT {
+    private static final String MY_EVENT_TYPE = "myEventType";
+
+    @Autowired
+    private EventLogWriter eventLogWriter;
+
+    @Autowired
+    private EventTransmitter eventTransmitter;
+
+    @Autowired
+    private EventTransmissionService eventTransmissionService;
+
+    @Autowired
+    private EventLogRepository eventLogRepository;
+
+    @Autowired
+    private MockNakadiPublishingClient nakadiClient;
+
+    @BeforeEach
+    @AfterEach
+    public void clearNakadiEvents() {
+        eventLogRepository.deleteAll();
+        nakadiClient.clearSentEvents();
+    }
+
+    @Test
+    public void lockedEventsAreStreamedInOrderAndDeleted() {
+        for (int i = 1; i <= 7; i++) {
+            eventLogWriter.fireBusinessEvent(MY_EVENT_TYPE, Fixture.mockPayload(i, "code" + i));
+        }
+
+        eventTransmitter.sendEvents();
+
+        List<String> sentEvents = nakadiClient.getSentEvents(MY_EVENT_TYPE);
+        assertThat(sentEvents, hasSize(5));
+        List<Integer> payloadIds = sentEvents.stream().map(e -> (Integer) read(e, "$.id")).toList();
+        assertThat(payloadIds, is(payloadIds.stream().sorted().toList()));
+
+        eventTransmitter.sendEvents();
+        assertThat(nakadiClient.getSentEvents(MY_EVENT_TYPE), hasSize(7));
+        assertThat(eventTransmissionService.lockSomeEvents(), is(empty()));
+    }
+}
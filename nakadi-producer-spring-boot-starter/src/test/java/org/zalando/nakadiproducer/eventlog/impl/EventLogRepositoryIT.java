@@ -1,14 +1,23 @@
 package org.zalando.nakadiproducer.eventlog.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.samePropertyValuesAs;
 import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +25,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.zalando.nakadiproducer.BaseMockedExternalCommunicationIT;
@@ -30,6 +40,9 @@ public class EventLogRepositoryIT extends BaseMockedExternalCommunicationIT {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
     @Autowired
     private TransactionTemplate transactionTemplate;
 
@@ -102,6 +115,20 @@ public class EventLogRepositoryIT extends BaseMockedExternalCommunicationIT {
         compareWithPersistedEvent(eventLog);
     }
 
+    @Test
+    @Transactional
+    public void testFindOneMapsAllColumns() {
+        eventLogRepository.persist(buildEventLog("FLOW_ID", null, UUID.randomUUID()).toBuilder()
+            .lockedBy("lock")
+            .lockedUntil(Instant.now().truncatedTo(ChronoUnit.MICROS))
+            .build());
+        EventLog expected = findAllEventsInDB().get(0);
+
+        EventLog actual = eventLogRepository.findOne(expected.getId());
+
+        assertThat(actual, samePropertyValuesAs(expected));
+    }
+
     @Test
     @Transactional
     public void testInsertSingleEventsWithDefaultEid() {
@@ -171,6 +198,72 @@ public class EventLogRepositoryIT extends BaseMockedExternalCommunicationIT {
         assertEvent(actual2, expected2);
     }
 
+    @Test
+    @Transactional
+    public void testBulkInsertSetsGeneratedIdsInOrder() {
+        // more than the largest multi-row statement, so several statements of different sizes are used
+        List<EventLog> eventLogsToPersist = IntStream.rangeClosed(1, 70)
+            .mapToObj(i -> buildEventLog("FLOW_ID_" + i))
+            .toList();
+
+        eventLogRepository.persist(eventLogsToPersist);
+
+        List<EventLog> eventLogsFound = findAllEventsInDB();
+        assertThat(eventLogsFound, hasSize(70));
+        for (int i = 0; i < 70; i++) {
+            assertThat(eventLogsToPersist.get(i).getId(), is(i + 1));
+            assertEvent(eventLogsFound.get(i), eventLogsToPersist.get(i));
+        }
+    }
+
+    @Test
+    @Transactional
+    public void testBulkInsertWithCopyAboveThreshold() {
+        EventLogRepository copyingRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(10).copyThreshold(2).build());
+        EventLog toCopy1 = buildEventLog("FLOW_ID_1", null, UUID.randomUUID());
+        // with characters which have to be escaped in the COPY text format
+        EventLog toCopy2 = buildEventLog("FLOW\t\\ID\n2").toBuilder()
+            .eventBodyData("{\"name\":\"Zürich\\t\\\\ \\r\\n €\"}")
+            .compactionKey(null)
+            .build();
+
+        copyingRepository.persist(List.of(toCopy1, toCopy2));
+
+        List<EventLog> eventLogsFound = findAllEventsInDB();
+        assertThat(eventLogsFound, hasSize(2));
+        assertEvent(eventLogsFound.get(0), toCopy1.toBuilder().id(1).build());
+        assertEvent(eventLogsFound.get(1), toCopy2.toBuilder().id(2).build());
+    }
+
+    @Test
+    public void testFailedCopyDoesNotInsertAnyEvents() {
+        EventLogRepository copyingRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(10).copyThreshold(2).build());
+        // the second event fails while the first one was already written to the COPY
+        List<EventLog> eventLogsToPersist = Arrays.asList(buildEventLog("FLOW_ID_1"), null);
+
+        assertThrows(NullPointerException.class, () -> copyingRepository.persist(eventLogsToPersist));
+
+        assertThat(findAllEventsInDB(), hasSize(0));
+    }
+
+    @Test
+    @Transactional
+    public void testInsertCompressedEventBody() {
+        EventBodyCompressor compressor = new EventBodyCompressor();
+        EventLog compressed = buildEventLog("FLOW_ID_1").toBuilder()
+            .eventBodyData(null)
+            .eventBodyCompressed(compressor.compress(WAREHOUSE_EVENT_TYPE, WAREHOUSE_EVENT_BODY_DATA))
+            .build();
+
+        eventLogRepository.persist(compressed);
+
+        EventLog found = findAllEventsInDB().get(0);
+        assertThat(found.getEventBodyData(), Matchers.nullValue());
+        assertThat(compressor.decompress(found.getEventBodyCompressed()), is(WAREHOUSE_EVENT_BODY_DATA));
+    }
+
     @Test
     @Transactional
     public void testInsertEventWithNegativeId() {
@@ -185,6 +278,203 @@ public class EventLogRepositoryIT extends BaseMockedExternalCommunicationIT {
         assertEvent(actual, expected);
     }
 
+    @Test
+    @Transactional
+    public void testClaimSomeMessagesLocksAndReturnsEventsOrderedById() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        persistTestEvent("FLOW_ID_3");
+        Instant now = Instant.now();
+        Instant lockExpires = now.plus(10, ChronoUnit.MINUTES);
+
+        Collection<EventLog> claimed = eventLogRepository.claimSomeMessages("my-lock", now, lockExpires);
+
+        assertThat(claimed.stream().map(EventLog::getId).toList(), is(List.of(1, 2, 3)));
+        assertThat(claimed.stream().map(EventLog::getLockedBy).distinct().toList(), is(List.of("my-lock")));
+        assertThat(eventLogRepository.findByLockedByAndLockedUntilGreaterThan("my-lock", now), hasSize(3));
+        assertThat(eventLogRepository.claimSomeMessages("other-lock", now, lockExpires), hasSize(0));
+    }
+
+    @Test
+    @Transactional
+    public void testOrderedClaimLocksOldestEventsFirst() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        persistTestEvent("FLOW_ID_3");
+        // updating the first event moves its row version to the end of the table
+        jdbcTemplate.update("UPDATE nakadi_events.event_log SET flow_id = 'FLOW_ID_1b' WHERE id = 1");
+        EventLogRepository orderedRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(2).orderedClaim(true).build());
+        Instant now = Instant.now();
+        Instant lockExpires = now.plus(10, ChronoUnit.MINUTES);
+
+        Collection<EventLog> claimed = orderedRepository.claimSomeMessages("my-lock", now, lockExpires);
+
+        assertThat(claimed.stream().map(EventLog::getId).toList(), is(List.of(1, 2)));
+        Collection<EventLog> claimedNext = orderedRepository.claimSomeMessages("other-lock", now, lockExpires);
+        assertThat(claimedNext.stream().map(EventLog::getId).toList(), is(List.of(3)));
+    }
+
+    @Test
+    @Transactional
+    public void testBodySizeIsStored() {
+        persistTestEvent("FLOW_ID_1");
+        eventLogRepository.persist(buildEventLog("FLOW_ID_2").toBuilder()
+            .eventBodyData(null)
+            .eventBodyCompressed(new byte[] {1, 2, 3})
+            .eventBodySize(1234)
+            .build());
+
+        List<EventLog> eventLogsFound = findAllEventsInDB();
+        assertThat(eventLogsFound.get(0).getEventBodySize(), is(WAREHOUSE_EVENT_BODY_DATA.length()));
+        assertThat(eventLogsFound.get(1).getEventBodySize(), is(1234));
+    }
+
+    @Test
+    @Transactional
+    public void testByteBudgetLimitsClaimedEvents() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        persistTestEvent("FLOW_ID_3");
+        // an event stored without body size is measured when locking
+        jdbcTemplate.update("UPDATE nakadi_events.event_log SET event_body_size = NULL WHERE id = 2");
+        int bodySize = WAREHOUSE_EVENT_BODY_DATA.length();
+        EventLogRepository budgetRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(10).orderedClaim(true).lockByteBudget(2L * bodySize + 1).build());
+        Instant now = Instant.now();
+        Instant lockExpires = now.plus(10, ChronoUnit.MINUTES);
+
+        Collection<EventLog> claimed = budgetRepository.claimSomeMessages("my-lock", now, lockExpires);
+
+        assertThat(claimed.stream().map(EventLog::getId).toList(), is(List.of(1, 2)));
+        assertThat(budgetRepository.claimSomeMessages("other-lock", now, lockExpires).stream().map(EventLog::getId).toList(),
+            is(List.of(3)));
+    }
+
+    @Test
+    @Transactional
+    public void testByteBudgetClaimsAtLeastOneEvent() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        EventLogRepository budgetRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(10).orderedClaim(true).lockByteBudget(1).build());
+        Instant now = Instant.now();
+
+        Collection<EventLog> claimed = budgetRepository.claimSomeMessages("my-lock", now, now.plus(10, ChronoUnit.MINUTES));
+
+        assertThat(claimed.stream().map(EventLog::getId).toList(), is(List.of(1)));
+    }
+
+    @Test
+    public void testClaimLimitIsReachedByLockSizeOrByteBudget() {
+        EventLogRepository budgetRepository = new EventLogRepositoryImpl(namedParameterJdbcTemplate,
+            EventLogRepositorySettings.builder().lockSize(10).orderedClaim(true).lockByteBudget(1000).build());
+
+        assertThat(budgetRepository.isClaimLimitReached(10, 100, 0), is(true));
+        assertThat(budgetRepository.isClaimLimitReached(5, 100, 5), is(true));
+        assertThat(budgetRepository.isClaimLimitReached(5, 100, 0), is(false));
+        // another event of the average size wouldn't have fit into the budget
+        assertThat(budgetRepository.isClaimLimitReached(5, 900, 0), is(true));
+        assertThat(budgetRepository.isClaimLimitReached(0, 0, 0), is(false));
+    }
+
+    @Test
+    @Transactional
+    public void testScheduleRetryUnlocksEventsWithExponentialBackoff() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Collection<EventLog> claimed = eventLogRepository.claimSomeMessages("my-lock", now, now.plus(10, ChronoUnit.MINUTES));
+        assertThat(claimed, hasSize(2));
+
+        eventLogRepository.scheduleRetry(claimed, now, Duration.ofSeconds(1), Duration.ofSeconds(3));
+        List<EventLog> events = findAllEventsInDB();
+        assertThat(events.get(0).getAttempts(), is(1));
+        assertThat(events.get(0).getLockedBy(), is(nullValue()));
+        assertThat(events.get(0).getLockedUntil(), is(now.plusSeconds(1)));
+
+        // not available before the backoff passed
+        assertThat(eventLogRepository.claimSomeMessages("other-lock", now, now.plus(10, ChronoUnit.MINUTES)), hasSize(0));
+
+        Instant later = now.plusSeconds(2);
+        Collection<EventLog> claimedAgain = eventLogRepository.claimSomeMessages("other-lock", later, later.plus(10, ChronoUnit.MINUTES));
+        assertThat(claimedAgain, hasSize(2));
+        eventLogRepository.scheduleRetry(claimedAgain, later, Duration.ofSeconds(1), Duration.ofSeconds(3));
+        assertThat(findAllEventsInDB().get(0).getLockedUntil(), is(later.plusSeconds(2)));
+
+        Collection<EventLog> claimedThird = eventLogRepository.claimSomeMessages("third-lock", later.plusSeconds(3), later.plus(10, ChronoUnit.MINUTES));
+        assertThat(claimedThird, hasSize(2));
+        eventLogRepository.scheduleRetry(claimedThird, later, Duration.ofSeconds(1), Duration.ofSeconds(3));
+        // capped at the maximum backoff
+        assertThat(findAllEventsInDB().get(0).getAttempts(), is(3));
+        assertThat(findAllEventsInDB().get(0).getLockedUntil(), is(later.plusSeconds(3)));
+    }
+
+    @Test
+    @Transactional
+    public void testScheduleRetryDoesNotTouchEventsLockedByOthers() {
+        persistTestEvent("FLOW_ID_1");
+        Instant now = Instant.now();
+        Collection<EventLog> claimed = eventLogRepository.claimSomeMessages("my-lock", now, now.plus(10, ChronoUnit.MINUTES));
+        jdbcTemplate.update("UPDATE nakadi_events.event_log SET locked_by = 'other-lock'");
+
+        eventLogRepository.scheduleRetry(claimed, now, Duration.ofSeconds(1), Duration.ofSeconds(3));
+
+        EventLog event = findAllEventsInDB().get(0);
+        assertThat(event.getAttempts(), is(0));
+        assertThat(event.getLockedBy(), is("other-lock"));
+    }
+
+    @Test
+    @Transactional
+    public void testClaimSomeMessageIdsReturnsTheLockedIds() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        Instant now = Instant.now();
+
+        Collection<Integer> ids = eventLogRepository.claimSomeMessageIds("my-lock", now, now.plus(10, ChronoUnit.MINUTES));
+
+        assertThat(ids, containsInAnyOrder(1, 2));
+        assertThat(findAllEventsInDB().get(0).getLockedBy(), is("my-lock"));
+    }
+
+    @Test
+    @Transactional
+    public void testLockSomeMessagesAndClaimSomeMessageIdsRespectTheGivenLockSize() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        persistTestEvent("FLOW_ID_3");
+        Instant now = Instant.now();
+        Instant lockExpires = now.plus(10, ChronoUnit.MINUTES);
+
+        eventLogRepository.lockSomeMessages("my-lock", now, lockExpires, 1);
+        Collection<Integer> ids = eventLogRepository.claimSomeMessageIds("other-lock", now, lockExpires, 1);
+
+        assertThat(eventLogRepository.findByLockedByAndLockedUntilGreaterThan("my-lock", now), hasSize(1));
+        assertThat(ids, hasSize(1));
+    }
+
+    @Test
+    @Transactional
+    public void testReleaseLocksOnlyReleasesTheGivenLocks() {
+        persistTestEvent("FLOW_ID_1");
+        persistTestEvent("FLOW_ID_2");
+        persistTestEvent("FLOW_ID_3");
+        Instant now = Instant.now();
+        Instant lockExpires = now.plus(10, ChronoUnit.MINUTES);
+        eventLogRepository.claimMessages("my-lock", List.of(1, 2), now, lockExpires);
+        eventLogRepository.claimMessages("other-lock", List.of(3), now, lockExpires);
+
+        eventLogRepository.releaseLocks("my-lock", List.of(1, 2, 3));
+
+        List<EventLog> events = findAllEventsInDB();
+        assertThat(events.get(0).getLockedBy(), is(nullValue()));
+        assertThat(events.get(0).getLockedUntil(), is(nullValue()));
+        assertThat(events.get(1).getLockedBy(), is(nullValue()));
+        assertThat(events.get(2).getLockedBy(), is("other-lock"));
+        assertThat(eventLogRepository.claimSomeMessages("next-lock", now, lockExpires), hasSize(2));
+    }
+
     /**
      * This test checks that the default eid is generated correctly when multiple transactions are running in parallel.
      * The test creates three events in two parallel transactions.
@@ -248,8 +538,9 @@ public class EventLogRepositoryIT extends BaseMockedExternalCommunicationIT {
     }
 
     private void assertEvent(EventLog actual, EventLog expected) {
+        // the body size is measured when persisting, and the attempt count is defaulted by the database
         assertThat(actual,
-            samePropertyValuesAs(expected, "created", "lastModified")
+            samePropertyValuesAs(expected, "created", "lastModified", "eventBodySize", "attempts")
         );
     }
 
@@ -0,0 +1,112 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compresses event bodies for storage in the event log (in the zlib format), optionally with a preset dictionary
+ * per event type. A dictionary is a sample of typical content (e.g. one or several typical event bodies), which
+ * lets even small events be compressed well.
+ * <p>
+ * The zlib format records a checksum of the dictionary used, so compressed bodies can be decompressed as long as
+ * their dictionary is still known, even if it is no longer used for compressing.
+ * </p>
+ */
+public class EventBodyCompressor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, byte[]> dictionariesByEventType;
+    private final Map<Integer, byte[]> dictionariesByChecksum = new HashMap<>();
+    private final int level;
+
+    public EventBodyCompressor() {
+        this(Map.of());
+    }
+
+    public EventBodyCompressor(Map<String, byte[]> dictionariesByEventType) {
+        this(dictionariesByEventType, Map.of(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param dictionariesByEventType the dictionaries used for compressing the bodies of some event types.
+     * @param retiredDictionaries     dictionaries which are no longer used for compressing, but might still be
+     *                                needed for decompressing stored bodies (by any name).
+     * @param level                   the compression level (0-9, or -1 for the default of the zlib library).
+     */
+    public EventBodyCompressor(Map<String, byte[]> dictionariesByEventType, Map<String, byte[]> retiredDictionaries,
+                               int level) {
+        this.dictionariesByEventType = Map.copyOf(dictionariesByEventType);
+        this.level = level;
+        retiredDictionaries.values().forEach(dictionary -> dictionariesByChecksum.put(checksum(dictionary), dictionary));
+        dictionariesByEventType.values().forEach(dictionary -> dictionariesByChecksum.put(checksum(dictionary), dictionary));
+    }
+
+    public byte[] compress(String eventType, String eventBodyData) {
+        return compress(eventType, eventBodyData.getBytes(UTF_8));
+    }
+
+    /**
+     * @param input the UTF-8 encoded event body.
+     */
+    public byte[] compress(String eventType, byte[] input) {
+        Deflater deflater = new Deflater(level);
+        try {
+            byte[] dictionary = dictionariesByEventType.get(eventType);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public String decompress(byte[] compressedEventBodyData) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressedEventBodyData);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressedEventBodyData.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsDictionary()) {
+                    byte[] dictionary = dictionariesByChecksum.get(inflater.getAdler());
+                    if (dictionary == null) {
+                        throw new IllegalStateException(
+                                "Event body was compressed with an unknown dictionary (checksum " + inflater.getAdler() + ").");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (length == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Compressed event body is truncated.");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toString(UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Could not decompress event body.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte[] dictionary) {
+        Adler32 adler32 = new Adler32();
+        adler32.update(dictionary);
+        return (int) adler32.getValue();
+    }
+}
@@ -33,6 +33,14 @@ public class EventLog {
         this.compactionKey = compactionKey;
     }
 
+    public EventLog(Integer id, String eventType, String eventBodyData, String flowId,
+                    Instant created,
+                    Instant lastModified, String lockedBy, Instant lockedUntil,
+                    String compactionKey, UUID eid) {
+        this(id, eventType, eventBodyData, flowId, created, lastModified, lockedBy, lockedUntil, compactionKey);
+        this.eid = eid;
+    }
+
     private Integer id;
     private String eventType;
     private String eventBodyData;
@@ -43,4 +51,18 @@ public class EventLog {
     private Instant lockedUntil;
     private String compactionKey;
     private UUID eid;
+    /**
+     * The event body compressed by {@link EventBodyCompressor}, if it was stored compressed. In this case,
+     * {@link #eventBodyData} is only filled when the event is transmitted.
+     */
+    private byte[] eventBodyCompressed;
+    /**
+     * The length of the (uncompressed) event body in bytes, if known. Used to limit the size of locked events.
+     */
+    private Integer eventBodySize;
+    /**
+     * The number of failed attempts to send this event, if known. After a failed attempt, {@link #lockedUntil}
+     * is the time of the next attempt.
+     */
+    private Integer attempts;
 }
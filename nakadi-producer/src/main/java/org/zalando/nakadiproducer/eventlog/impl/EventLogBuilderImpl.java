@@ -5,29 +5,85 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.zalando.nakadiproducer.eventlog.EidGeneratorStrategy;
 import org.zalando.nakadiproducer.flowid.FlowIdComponent;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class EventLogBuilderImpl implements EventLogBuilder {
 
     private final ObjectMapper objectMapper;
     private final FlowIdComponent flowIdComponent;
     private final EidGeneratorStrategy eidGeneratorStrategy;
+    private final EventBodyCompressor eventBodyCompressor;
 
     public EventLogBuilderImpl(ObjectMapper objectMapper, FlowIdComponent flowIdComponent,
                                EidGeneratorStrategy eidGeneratorStrategy) {
+        this(objectMapper, flowIdComponent, eidGeneratorStrategy, null);
+    }
+
+    /**
+     * @param eventBodyCompressor if not null, the event bodies are stored compressed with this.
+     */
+    public EventLogBuilderImpl(ObjectMapper objectMapper, FlowIdComponent flowIdComponent,
+                               EidGeneratorStrategy eidGeneratorStrategy, EventBodyCompressor eventBodyCompressor) {
         this.objectMapper = objectMapper;
         this.flowIdComponent = flowIdComponent;
         this.eidGeneratorStrategy = eidGeneratorStrategy;
+        this.eventBodyCompressor = eventBodyCompressor;
     }
 
     public EventLog buildEventLog(String eventType, Object eventPayload, String compactionKey) {
         EventLog eventLog = new EventLog();
         eventLog.setEventType(eventType);
-        eventLog.setEventBodyData(getEventBodyData(eventPayload));
+        String eventBodyData = getEventBodyData(eventPayload);
+        if (eventBodyCompressor != null) {
+            byte[] encodedEventBodyData = eventBodyData.getBytes(UTF_8);
+            eventLog.setEventBodySize(encodedEventBodyData.length);
+            eventLog.setEventBodyCompressed(eventBodyCompressor.compress(eventType, encodedEventBodyData));
+        } else {
+            eventLog.setEventBodyData(eventBodyData);
+            eventLog.setEventBodySize(utf8Length(eventBodyData));
+        }
         eventLog.setCompactionKey(compactionKey);
         eventLog.setFlowId(flowIdComponent.getXFlowIdValue());
         eventLog.setEid(eidGeneratorStrategy.generateEid());
         return eventLog;
     }
 
+    /**
+     * Counts the bytes of the UTF-8 encoding of the string (like Postgres' {@code octet_length} of the stored body),
+     * without actually encoding it. This is the meaning of {@link EventLog#getEventBodySize()}.
+     * @return the number of bytes, or 0 for null.
+     */
+    public static int utf8Length(String s) {
+        if (s == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the known body size of the event, or the measured size of its (uncompressed) body, or null.
+     */
+    static Integer eventBodySize(EventLog eventLog) {
+        if (eventLog.getEventBodySize() != null || eventLog.getEventBodyData() == null) {
+            return eventLog.getEventBodySize();
+        }
+        return utf8Length(eventLog.getEventBodyData());
+    }
+
     private String getEventBodyData(Object eventPayload) {
         try {
             return objectMapper.writeValueAsString(eventPayload);
@@ -1,13 +1,102 @@
 package org.zalando.nakadiproducer.eventlog.impl;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 public interface EventLogRepository {
     Collection<EventLog> findByLockedByAndLockedUntilGreaterThan(String lockedBy, Instant lockedUntil);
 
+    /**
+     * Like {@link #findByLockedByAndLockedUntilGreaterThan(String, Instant)}, but the events are read
+     * one after the other (ordered by id) while the stream is consumed, instead of being loaded into memory at once.
+     * This needs to be called inside a transaction, and the returned stream needs to be closed after use.
+     */
+    default Stream<EventLog> streamByLockedByAndLockedUntilGreaterThan(String lockedBy, Instant lockedUntil) {
+        return findByLockedByAndLockedUntilGreaterThan(lockedBy, lockedUntil).stream();
+    }
+
     void lockSomeMessages(String lockId, Instant now, Instant lockExpires);
 
+    /**
+     * Locks some events like {@link #lockSomeMessages(String, Instant, Instant)}, and returns the locked
+     * events (ordered by id). Implementations should do this in a single statement.
+     */
+    default Collection<EventLog> claimSomeMessages(String lockId, Instant now, Instant lockExpires) {
+        lockSomeMessages(lockId, now, lockExpires);
+        return findByLockedByAndLockedUntilGreaterThan(lockId, now);
+    }
+
+    /**
+     * Locks some events like {@link #lockSomeMessages(String, Instant, Instant)}, and returns the ids of the locked
+     * events, without loading the events themselves.
+     */
+    default Collection<Integer> claimSomeMessageIds(String lockId, Instant now, Instant lockExpires) {
+        lockSomeMessages(lockId, now, lockExpires);
+        return findByLockedByAndLockedUntilGreaterThan(lockId, now).stream().map(EventLog::getId).toList();
+    }
+
+    /**
+     * Like {@link #lockSomeMessages(String, Instant, Instant)}, but locks at most {@code lockSize} events instead
+     * of the configured number. The default implementation ignores the given lock size.
+     */
+    default void lockSomeMessages(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        lockSomeMessages(lockId, now, lockExpires);
+    }
+
+    /**
+     * Like {@link #claimSomeMessageIds(String, Instant, Instant)}, but locks at most {@code lockSize} events instead
+     * of the configured number. The default implementation ignores the given lock size.
+     */
+    default Collection<Integer> claimSomeMessageIds(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        return claimSomeMessageIds(lockId, now, lockExpires);
+    }
+
+    /**
+     * Like {@link #claimSomeMessages(String, Instant, Instant)}, but locks at most {@code lockSize} events instead
+     * of the configured number. The default implementation ignores the given lock size.
+     */
+    default Collection<EventLog> claimSomeMessages(String lockId, Instant now, Instant lockExpires, int lockSize) {
+        return claimSomeMessages(lockId, now, lockExpires);
+    }
+
+    /**
+     * Whether a claim which locked the given number of events (with the given sum of body sizes) was cut off by the
+     * lock size or another limit of this repository, so that more events are probably waiting.
+     * @param lockSize the lock size passed to the claim, or 0 if the configured lock size was used.
+     * The default implementation only checks the given lock size.
+     */
+    default boolean isClaimLimitReached(int lockedEvents, long lockedBytes, int lockSize) {
+        return lockSize > 0 && lockedEvents >= lockSize;
+    }
+
+    /**
+     * Like {@link #claimSomeMessages(String, Instant, Instant)}, but only locks (unlocked) events with the given ids.
+     * The default implementation doesn't support this, and locks any events instead.
+     */
+    default Collection<EventLog> claimMessages(String lockId, Collection<Integer> ids, Instant now, Instant lockExpires) {
+        return claimSomeMessages(lockId, now, lockExpires);
+    }
+
+    /**
+     * Makes events which could not be sent available again after a backoff, instead of only after their lock
+     * expired. The attempt count of each event is incremented, and its lock is replaced by one without lock id
+     * until {@code now} plus the backoff: {@code initialBackoff}, doubled for each previous attempt, but at most
+     * {@code maxBackoff}. Events which are locked by someone else meanwhile are not changed.
+     * The default implementation does nothing, so the events are retried when their lock expires.
+     */
+    default void scheduleRetry(Collection<EventLog> eventLogs, Instant now, Duration initialBackoff, Duration maxBackoff) {
+    }
+
+    /**
+     * Removes the lock with the given lock id from those of the given events which still have it, so that they can
+     * be locked again right away, instead of only after their lock expired.
+     * The default implementation does nothing.
+     */
+    default void releaseLocks(String lockId, Collection<Integer> ids) {
+    }
+
     void delete(EventLog eventLog);
 
     default void delete(Collection<EventLog> eventLogs) {
@@ -7,6 +7,7 @@ import static org.zalando.nakadiproducer.eventlog.impl.EventDataOperation.SNAPSH
 import static org.zalando.nakadiproducer.eventlog.impl.EventDataOperation.UPDATE;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -27,11 +28,24 @@ public class EventLogWriterImpl implements EventLogWriter {
 
     private final Map<String, CompactionKeyExtractor> extractorsByEventType;
 
+    private final PersistedEventsListener persistedEventsListener;
+
     public EventLogWriterImpl(EventLogRepository eventLogRepository,
                               EventLogBuilder eventLogBuilder,
                               List<CompactionKeyExtractor> keyExtractors) {
+        this(eventLogRepository, eventLogBuilder, keyExtractors, eventLogs -> { });
+    }
+
+    /**
+     * @param persistedEventsListener gets notified about each persisted event (or collection of events).
+     */
+    public EventLogWriterImpl(EventLogRepository eventLogRepository,
+                              EventLogBuilder eventLogBuilder,
+                              List<CompactionKeyExtractor> keyExtractors,
+                              PersistedEventsListener persistedEventsListener) {
         this.eventLogRepository = eventLogRepository;
         this.eventLogBuilder = eventLogBuilder;
+        this.persistedEventsListener = persistedEventsListener;
         this.extractorsByEventType = keyExtractors.stream()
                 .collect(groupingBy(
                         CompactionKeyExtractor::getEventType,
@@ -47,7 +61,7 @@ public class EventLogWriterImpl implements EventLogWriter {
      * @param list a list of extractors, non-empty.
      * @return a single extractor based on the list which will return a key when any of the extractors returns one.
      */
-    private static CompactionKeyExtractor joinCompactors(List<CompactionKeyExtractor> list) {
+    static CompactionKeyExtractor joinCompactors(List<CompactionKeyExtractor> list) {
         Preconditions.checkArgument(!list.isEmpty());
         if(list.size() == 1) {
             // the most common case: just one extractor per event type.
@@ -65,66 +79,76 @@ public class EventLogWriterImpl implements EventLogWriter {
     @Transactional
     public void fireCreateEvent(final String eventType, final String dataType, final Object data) {
         final EventLog eventLog = createDataEventLog(eventType, CREATE, dataType, data);
-        eventLogRepository.persist(eventLog);
+        persist(eventLog);
     }
 
     @Override
     @Transactional
     public void fireCreateEvents(final String eventType, final String dataType, final Collection<?> data) {
-        eventLogRepository.persist(createDataEventLogs(eventType, CREATE, dataType, data));
+        persist(createDataEventLogs(eventType, CREATE, dataType, data));
     }
 
     @Override
     @Transactional
     public void fireUpdateEvent(final String eventType, final String dataType, final Object data) {
         final EventLog eventLog = createDataEventLog(eventType, UPDATE, dataType, data);
-        eventLogRepository.persist(eventLog);
+        persist(eventLog);
     }
 
     @Override
     @Transactional
     public void fireUpdateEvents(final String eventType, final String dataType, final Collection<?> data) {
-        eventLogRepository.persist(createDataEventLogs(eventType, UPDATE, dataType, data));
+        persist(createDataEventLogs(eventType, UPDATE, dataType, data));
     }
 
     @Override
     @Transactional
     public void fireDeleteEvent(final String eventType, final String dataType, final Object data) {
         final EventLog eventLog = createDataEventLog(eventType, DELETE, dataType, data);
-        eventLogRepository.persist(eventLog);
+        persist(eventLog);
     }
 
     @Override
     @Transactional
     public void fireDeleteEvents(final String eventType, final String dataType, final Collection<?> data) {
-        eventLogRepository.persist(createDataEventLogs(eventType, DELETE, dataType, data));
+        persist(createDataEventLogs(eventType, DELETE, dataType, data));
     }
 
     @Override
     @Transactional
     public void fireSnapshotEvent(final String eventType, final String dataType, final Object data) {
         final EventLog eventLog = createDataEventLog(eventType, SNAPSHOT, dataType, data);
-        eventLogRepository.persist(eventLog);
+        persist(eventLog);
     }
 
     @Override
     @Transactional
     public void fireSnapshotEvents(final String eventType, final String dataType, final Collection<?> data) {
-        eventLogRepository.persist(createDataEventLogs(eventType, SNAPSHOT, dataType, data));
+        persist(createDataEventLogs(eventType, SNAPSHOT, dataType, data));
     }
 
     @Override
     @Transactional
     public void fireBusinessEvent(final String eventType, Object payload) {
         final EventLog eventLog = eventLogBuilder.buildEventLog(eventType, payload, getCompactionKeyFor(eventType, payload));
-        eventLogRepository.persist(eventLog);
+        persist(eventLog);
     }
 
     @Override
     @Transactional
     public void fireBusinessEvents(final String eventType, final Collection<?> payload) {
         final Collection<EventLog> eventLogs = createBusinessEventLogs(eventType, payload);
+        persist(eventLogs);
+    }
+
+    private void persist(EventLog eventLog) {
+        eventLogRepository.persist(eventLog);
+        persistedEventsListener.eventsPersisted(Collections.singletonList(eventLog));
+    }
+
+    private void persist(Collection<EventLog> eventLogs) {
         eventLogRepository.persist(eventLogs);
+        persistedEventsListener.eventsPersisted(eventLogs);
     }
 
     private Collection<EventLog> createBusinessEventLogs(final String eventType,
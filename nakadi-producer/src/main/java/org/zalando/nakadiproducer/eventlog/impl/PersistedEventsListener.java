@@ -0,0 +1,15 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import java.util.Collection;
+
+/**
+ * Gets notified by {@link EventLogWriterImpl} about events which were just persisted to the event log. This is
+ * called inside the transaction which persisted the events, so they are not necessarily visible to others yet.
+ */
+public interface PersistedEventsListener {
+
+    /**
+     * @param eventLogs the persisted events. Their ids are set if the repository provides them.
+     */
+    void eventsPersisted(Collection<EventLog> eventLogs);
+}
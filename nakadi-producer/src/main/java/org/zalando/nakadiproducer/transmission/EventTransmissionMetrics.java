@@ -0,0 +1,61 @@
+package org.zalando.nakadiproducer.transmission;
+
+import java.time.Duration;
+
+/**
+ * Receives measurements from the event transmission, e.g. to publish them as metrics.
+ * All methods do nothing by default, so implementations only need to override what they are interested in.
+ * They are called from the transmission threads, and should return quickly.
+ */
+public interface EventTransmissionMetrics {
+
+    /**
+     * An implementation which ignores all measurements.
+     */
+    EventTransmissionMetrics NOOP = new EventTransmissionMetrics() { };
+
+    /**
+     * Events were locked (and loaded) for transmission.
+     */
+    default void recordLocking(int eventCount, Duration duration) {
+    }
+
+    /**
+     * An event was converted into its Nakadi form.
+     */
+    default void recordSerialization(String eventType, Duration duration) {
+    }
+
+    /**
+     * An event was not tried to be sent, because its lock was about to expire, or it could not be converted
+     * into its Nakadi form.
+     */
+    default void recordSkippedEvent(String eventType) {
+    }
+
+    /**
+     * A batch of events was published to Nakadi (successfully or not).
+     * @param bytes the estimated size of the batch.
+     */
+    default void recordPublishing(String eventType, int eventCount, long bytes, Duration duration) {
+    }
+
+    /**
+     * An event was published successfully.
+     * @param age the time between the creation of the event and its publishing, or null if unknown.
+     */
+    default void recordSentEvent(String eventType, Duration age) {
+    }
+
+    /**
+     * Some events of a batch could not be published.
+     */
+    default void recordFailedEvents(String eventType, int eventCount) {
+    }
+
+    /**
+     * Published events were deleted from the event log.
+     */
+    default void recordDeletion(int eventCount, Duration duration) {
+    }
+}
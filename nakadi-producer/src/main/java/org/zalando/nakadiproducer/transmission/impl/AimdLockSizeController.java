@@ -0,0 +1,76 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import java.time.Duration;
+
+/**
+ * Adapts the number of events locked (and thus sent) at once to the observed publishing performance, with
+ * additive increase and multiplicative decrease: each batch published within the target latency increases the
+ * lock size by a fixed step, each slow or failed one halves it.
+ * <p>
+ * Additionally, the lock size is capped so that the locked events (at their average observed size) fit into
+ * one batch, as larger claims would only be split into several batches anyway.
+ * </p>
+ */
+public class AimdLockSizeController {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    // weight of the latest batch in the average event size
+    private static final double EVENT_SIZE_SMOOTHING = 0.2;
+
+    private final int minLockSize;
+    private final int maxLockSize;
+    private final int increase;
+    private final Duration targetLatency;
+
+    private int lockSize;
+    private double averageEventSize;
+
+    /**
+     * @param initialLockSize the lock size to start with.
+     * @param increase        the number of events by which the lock size grows after each fast enough batch.
+     * @param targetLatency   the maximum time publishing a batch should take.
+     */
+    public AimdLockSizeController(int initialLockSize, int minLockSize, int maxLockSize, int increase, Duration targetLatency) {
+        if (minLockSize < 1 || maxLockSize < minLockSize) {
+            throw new IllegalArgumentException(
+                    "Lock size bounds must satisfy 1 <= min <= max, but were " + minLockSize + " and " + maxLockSize);
+        }
+        this.minLockSize = minLockSize;
+        this.maxLockSize = maxLockSize;
+        this.increase = increase;
+        this.targetLatency = targetLatency;
+        this.lockSize = Math.max(minLockSize, Math.min(maxLockSize, initialLockSize));
+    }
+
+    /**
+     * @return the number of events to lock next.
+     */
+    public synchronized int getLockSize() {
+        if (averageEventSize > 0) {
+            long fittingIntoOneBatch = (long) (EventBatcher.MAX_BATCH_SIZE_IN_BYTES / averageEventSize);
+            return (int) Math.max(minLockSize, Math.min(lockSize, fittingIntoOneBatch));
+        }
+        return lockSize;
+    }
+
+    /**
+     * Records the result of publishing one batch.
+     * @param eventCount the number of events in the batch.
+     * @param bytes      the (estimated) size of the batch.
+     * @param latency    the time publishing the batch took.
+     * @param failed     whether publishing the batch failed as a whole (e.g. with a timeout or server error).
+     */
+    public synchronized void recordPublish(int eventCount, long bytes, Duration latency, boolean failed) {
+        if (eventCount > 0) {
+            double eventSize = (double) bytes / eventCount;
+            averageEventSize = averageEventSize == 0
+                    ? eventSize
+                    : averageEventSize + EVENT_SIZE_SMOOTHING * (eventSize - averageEventSize);
+        }
+        if (failed || latency.compareTo(targetLatency) > 0) {
+            lockSize = Math.max(minLockSize, (int) (lockSize * DECREASE_FACTOR));
+        } else {
+            lockSize = Math.min(maxLockSize, lockSize + increase);
+        }
+    }
+}
@@ -7,27 +7,49 @@ import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogBuilderImpl;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
+/**
+ * Collects events into batches for publishing. Each batch contains only events of one event type, in the order
+ * in which they were pushed. Events of different event types can be pushed interleaved, there is one open batch
+ * per event type, so they still end up in as few batches as possible.
+ */
 @Slf4j
 public class EventBatcher {
 
     private static final long NAKADI_BATCH_SIZE_LIMIT_IN_BYTES = 50000000;
-    private final ObjectMapper objectMapper;
+    static final long MAX_BATCH_SIZE_IN_BYTES = (long) (0.8 * NAKADI_BATCH_SIZE_LIMIT_IN_BYTES);
+
+    /**
+     * Size of the serialized form of an event (including the separator in the batch array) without the
+     * variable parts (body, flow id and compaction key). Eid and timestamp are included with their maximum length.
+     */
+    private static final int METADATA_ENVELOPE_SIZE =
+            "{\"metadata\":{\"eid\":\"00000000-0000-0000-0000-000000000000\",\"occurred_at\":\"2000-01-01T00:00:00.000000000Z\",\"flow_id\":\"\"},},"
+                    .length();
+    private static final int COMPACTION_KEY_ENVELOPE_SIZE = ",\"partition_compaction_key\":\"\"".length();
+
     private final Consumer<List<BatchItem>> publisher;
 
-    private List<BatchItem> batch;
-    private long aggregatedBatchSize;
+    private final Map<String, OpenBatch> openBatches = new LinkedHashMap<>();
 
-    public EventBatcher(ObjectMapper objectMapper, Consumer<List<BatchItem>> publisher) {
-        this.objectMapper = objectMapper;
+    public EventBatcher(Consumer<List<BatchItem>> publisher) {
         this.publisher = publisher;
+    }
 
-        this.batch = new ArrayList<>();
-        this.aggregatedBatchSize = 0;
+    /**
+     * @deprecated The size of the events is now estimated without serializing them, so the object mapper is not
+     * used anymore. Use {@link #EventBatcher(Consumer)} instead.
+     */
+    @Deprecated
+    public EventBatcher(ObjectMapper objectMapper, Consumer<List<BatchItem>> publisher) {
+        this(publisher);
     }
 
     /**
@@ -37,43 +59,74 @@ public class EventBatcher {
      * @param nakadiEvent The Nakadi form of the event.
      */
     public void pushEvent(EventLog eventLogEntry, NakadiEvent nakadiEvent) {
-        long eventSize;
-
-        try {
-            eventSize = objectMapper.writeValueAsBytes(nakadiEvent).length;
-        } catch (Exception e) {
-            log.error("Could not serialize event {} of type {}, skipping it.", eventLogEntry.getId(), eventLogEntry.getEventType(), e);
-            return;
-        }
-
+        long eventSize = estimateSize(eventLogEntry);
+        OpenBatch batch = openBatches.computeIfAbsent(eventLogEntry.getEventType(), eventType -> new OpenBatch());
 
-        if (!batch.isEmpty() &&
-                (hasAnotherEventType(batch, eventLogEntry) || batchWouldBecomeTooBig(aggregatedBatchSize, eventSize))) {
-            this.publisher.accept(batch);
+        if (!batch.items.isEmpty() && batchWouldBecomeTooBig(batch.aggregatedSize, eventSize)) {
+            this.publisher.accept(batch.items);
 
-            batch = new ArrayList<>();
-            aggregatedBatchSize = 0;
+            batch.items = new ArrayList<>();
+            batch.aggregatedSize = 0;
         }
 
-        batch.add(new BatchItem(eventLogEntry, nakadiEvent));
-        aggregatedBatchSize += eventSize;
+        batch.items.add(new BatchItem(eventLogEntry, nakadiEvent));
+        batch.aggregatedSize += eventSize;
     }
 
     /**
-     * Publishes all events which were pushed and not yet published.
+     * Publishes all events which were pushed and not yet published, one batch per event type (in the order
+     * in which the event types were first seen).
      */
     public void finish() {
-        if (!batch.isEmpty()) {
-            this.publisher.accept(batch);
+        for (OpenBatch batch : openBatches.values()) {
+            if (!batch.items.isEmpty()) {
+                this.publisher.accept(batch.items);
+            }
         }
+        openBatches.clear();
     }
 
-    private boolean hasAnotherEventType(List<BatchItem> batch, EventLog event) {
-        return !event.getEventType().equals(batch.get(0).getEventLogEntry().getEventType());
+    /**
+     * Estimates the number of bytes the event will take up in the submitted batch, without serializing it.
+     * The stored body is used as-is (Jackson writes the same JSON, maybe without some whitespace), so this
+     * is usually a slight overestimation.
+     */
+    static long estimateSize(EventLog eventLogEntry) {
+        long size = METADATA_ENVELOPE_SIZE
+                + serializedLength(eventLogEntry.getEventBodyData())
+                + serializedLength(eventLogEntry.getFlowId());
+        if (eventLogEntry.getCompactionKey() != null) {
+            size += COMPACTION_KEY_ENVELOPE_SIZE + serializedLength(eventLogEntry.getCompactionKey());
+        }
+        return size;
+    }
+
+    /**
+     * The UTF-8 length of the string, plus the escaping overhead of Jackson's generator: it writes characters
+     * outside the basic multilingual plane as two escaped surrogates (six bytes each) instead of their four UTF-8
+     * bytes.
+     */
+    private static long serializedLength(String s) {
+        if (s == null) {
+            return 0;
+        }
+        long length = EventLogBuilderImpl.utf8Length(s);
+        for (int i = 0; i + 1 < s.length(); i++) {
+            if (Character.isHighSurrogate(s.charAt(i)) && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 8;
+                i++;
+            }
+        }
+        return length;
     }
 
     private boolean batchWouldBecomeTooBig(long aggregatedBatchSize, long eventSize) {
-        return aggregatedBatchSize + eventSize > 0.8 * NAKADI_BATCH_SIZE_LIMIT_IN_BYTES;
+        return aggregatedBatchSize + eventSize > MAX_BATCH_SIZE_IN_BYTES;
+    }
+
+    private static class OpenBatch {
+        List<BatchItem> items = new ArrayList<>();
+        long aggregatedSize;
     }
 
     @AllArgsConstructor
@@ -1,12 +1,21 @@
 package org.zalando.nakadiproducer.transmission.impl;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.zalando.fahrschein.EventPublishingException;
 import org.zalando.fahrschein.domain.BatchItemResponse;
+import org.zalando.nakadiproducer.eventlog.impl.EventBodyCompressor;
 import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+import org.zalando.nakadiproducer.eventlog.impl.EventLogBuilderImpl;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
 import org.zalando.nakadiproducer.transmission.NakadiPublishingClient;
 import org.zalando.nakadiproducer.transmission.impl.EventBatcher.BatchItem;
 
@@ -14,61 +23,398 @@ import jakarta.transaction.Transactional;
 
 import java.io.IOException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
 
 @Slf4j
-public class EventTransmissionService {
+public class EventTransmissionService implements AutoCloseable {
 
     private final EventLogRepository eventLogRepository;
     private final NakadiPublishingClient nakadiPublishingClient;
     private final ObjectMapper objectMapper;
     private final int lockDuration;
     private final int lockDurationBuffer;
+    private final boolean eventBodyPassthrough;
+    private final boolean eventBodyValidation;
+    private final int publishingConcurrency;
+    private final ExecutorService publishingExecutor;
+    private final Semaphore publishingPermits;
+    private final EventBodyCompressor eventBodyCompressor;
+    private final AimdLockSizeController lockSizeController;
+    private final EventTransmissionMetrics metrics;
+    private final RetryBackoff retryBackoff;
+    private final boolean lockReleaseEnabled;
+    private final Map<String, Collection<Integer>> activeLocks = new ConcurrentHashMap<>();
+    private final Map<String, Integer> streamingLockSizes = new ConcurrentHashMap<>();
 
     private Clock clock = Clock.systemDefaultZone();
 
     public EventTransmissionService(EventLogRepository eventLogRepository, NakadiPublishingClient nakadiPublishingClient, ObjectMapper objectMapper,
     int lockDuration, int lockDurationBuffer) {
+        this(eventLogRepository, nakadiPublishingClient, objectMapper, EventTransmissionSettings.builder()
+                .lockDuration(lockDuration)
+                .lockDurationBuffer(lockDurationBuffer)
+                .build());
+    }
+
+    public EventTransmissionService(EventLogRepository eventLogRepository, NakadiPublishingClient nakadiPublishingClient, ObjectMapper objectMapper,
+    EventTransmissionSettings settings) {
+        if (settings.getPublishingConcurrency() < 1) {
+            throw new IllegalArgumentException("publishingConcurrency must be at least 1, but was " + settings.getPublishingConcurrency());
+        }
         this.eventLogRepository = eventLogRepository;
         this.nakadiPublishingClient = nakadiPublishingClient;
         this.objectMapper = objectMapper;
-        this.lockDuration = lockDuration;
-        this.lockDurationBuffer = lockDurationBuffer;
+        this.lockDuration = settings.getLockDuration();
+        this.lockDurationBuffer = settings.getLockDurationBuffer();
+        this.eventBodyPassthrough = settings.isEventBodyPassthrough();
+        this.eventBodyValidation = settings.isEventBodyValidation();
+        this.publishingConcurrency = settings.getPublishingConcurrency();
+        this.publishingExecutor = publishingConcurrency > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.publishingPermits = new Semaphore(publishingConcurrency);
+        this.eventBodyCompressor = settings.getEventBodyCompressor();
+        this.lockSizeController = settings.getLockSizeController();
+        this.metrics = settings.getMetrics();
+        this.retryBackoff = settings.getRetryBackoff();
+        this.lockReleaseEnabled = settings.isLockReleaseEnabled();
     }
 
     @Transactional
     public Collection<EventLog> lockSomeEvents() {
         String lockId = UUID.randomUUID().toString();
         log.debug("Locking events for replication with lockId {} for {} seconds", lockId, lockDuration);
-        eventLogRepository.lockSomeMessages(lockId, now(), now().plus(lockDuration, SECONDS));
-        return eventLogRepository.findByLockedByAndLockedUntilGreaterThan(lockId, now());
+        long start = System.nanoTime();
+        Collection<EventLog> events;
+        if (lockSizeController != null) {
+            events = eventLogRepository.claimSomeMessages(lockId, now(), now().plus(lockDuration, SECONDS),
+                    lockSizeController.getLockSize());
+        } else {
+            events = eventLogRepository.claimSomeMessages(lockId, now(), now().plus(lockDuration, SECONDS));
+        }
+        metrics.recordLocking(events.size(), Duration.ofNanos(System.nanoTime() - start));
+        trackLock(lockId, events.stream().map(EventLog::getId).toList());
+        return events;
+    }
+
+    /**
+     * Whether locking the given events was cut off by the lock size (or the byte budget of the repository), so that
+     * more events are probably waiting. This needs to be called right after locking them, as the lock size might
+     * change with each published batch.
+     */
+    public boolean isLockLimitReached(Collection<EventLog> lockedEvents) {
+        long lockedBytes = lockedEvents.stream().mapToLong(EventTransmissionService::bodySize).sum();
+        return eventLogRepository.isClaimLimitReached(lockedEvents.size(), lockedBytes, currentLockSize());
+    }
+
+    /**
+     * @return the lock size of the adaptive controller, if there is one, or else the given lock size. This is meant
+     *         for callers which decide themselves how many events to lock, like with {@link #lockEventsById(Collection)}.
+     */
+    public int effectiveLockSize(int configuredLockSize) {
+        return lockSizeController != null ? lockSizeController.getLockSize() : configuredLockSize;
+    }
+
+    /**
+     * @return the lock size of the adaptive controller, or 0 for the configured lock size of the repository.
+     */
+    private int currentLockSize() {
+        return lockSizeController != null ? lockSizeController.getLockSize() : 0;
+    }
+
+    private static long bodySize(EventLog event) {
+        if (event.getEventBodySize() != null) {
+            return event.getEventBodySize();
+        }
+        return EventLogBuilderImpl.utf8Length(event.getEventBodyData());
+    }
+
+    /**
+     * Locks the events with the given ids, as far as they are not locked already. All of them are locked, regardless
+     * of the lock size, so callers should limit the number of ids using {@link #effectiveLockSize(int)}.
+     * @return the locked events.
+     */
+    @Transactional
+    public Collection<EventLog> lockEventsById(Collection<Integer> ids) {
+        String lockId = UUID.randomUUID().toString();
+        log.debug("Locking {} events by id for replication with lockId {} for {} seconds", ids.size(), lockId, lockDuration);
+        long start = System.nanoTime();
+        Collection<EventLog> events = eventLogRepository.claimMessages(lockId, ids, now(), now().plus(lockDuration, SECONDS));
+        metrics.recordLocking(events.size(), Duration.ofNanos(System.nanoTime() - start));
+        trackLock(lockId, events.stream().map(EventLog::getId).toList());
+        return events;
+    }
+
+    /**
+     * Locks some events like {@link #lockSomeEvents()}, but doesn't load them. They can then be sent
+     * using {@link #sendLockedEvents(String)}.
+     * @return the lock id.
+     */
+    @Transactional
+    public String lockSomeEventsForStreaming() {
+        String lockId = UUID.randomUUID().toString();
+        log.debug("Locking events for replication with lockId {} for {} seconds", lockId, lockDuration);
+        int lockSize = currentLockSize();
+        if (lockReleaseEnabled) {
+            // the ids are needed to release the locks later
+            trackLock(lockId, lockSize > 0
+                    ? eventLogRepository.claimSomeMessageIds(lockId, now(), now().plus(lockDuration, SECONDS), lockSize)
+                    : eventLogRepository.claimSomeMessageIds(lockId, now(), now().plus(lockDuration, SECONDS)));
+        } else if (lockSize > 0) {
+            eventLogRepository.lockSomeMessages(lockId, now(), now().plus(lockDuration, SECONDS), lockSize);
+        } else {
+            eventLogRepository.lockSomeMessages(lockId, now(), now().plus(lockDuration, SECONDS));
+        }
+        if (lockSize > 0) {
+            // the lock size might change until the events are sent
+            streamingLockSizes.put(lockId, lockSize);
+        }
+        return lockId;
     }
 
     @Transactional
     public void sendEvents(Collection<EventLog> events) {
-        EventBatcher batcher = new EventBatcher(objectMapper, this::publishBatch);
+        Queue<EventLog> unsentEvents = new ConcurrentLinkedQueue<>();
+        sendEvents(events.iterator(), unsentEvents);
+        releaseLocks(unsentEvents);
+        events.stream().map(EventLog::getLockedBy).filter(Objects::nonNull).distinct().forEach(activeLocks::remove);
+    }
+
+    /**
+     * Sends the events locked with the given lock id. The events are read from the database while they are
+     * being sent, so only the events of the open batches (one per event type) are held in memory at a time.
+     * @return the number of locked events which were read, and whether the lock was cut off by its limit.
+     */
+    @Transactional
+    public TransmissionRun sendLockedEvents(String lockId) {
+        Integer lockSize = streamingLockSizes.remove(lockId);
+        int count;
+        long[] lockedBytes = new long[1];
+        Queue<EventLog> unsentEvents = new ConcurrentLinkedQueue<>();
+        try (Stream<EventLog> events = eventLogRepository.streamByLockedByAndLockedUntilGreaterThan(lockId, now())) {
+            count = sendEvents(events.peek(event -> lockedBytes[0] += bodySize(event)).iterator(), unsentEvents);
+        }
+        releaseLocks(unsentEvents);
+        activeLocks.remove(lockId);
+        return new TransmissionRun(count,
+                eventLogRepository.isClaimLimitReached(count, lockedBytes[0], lockSize != null ? lockSize : 0));
+    }
+
+    /**
+     * Releases the locks of all runs which were started, but not finished yet (or failed), so other instances can
+     * send their remaining events right away. This is meant to be called when shutting down.
+     */
+    @Transactional
+    public void releaseAllLocks() {
+        for (String lockId : new ArrayList<>(activeLocks.keySet())) {
+            Collection<Integer> ids = activeLocks.remove(lockId);
+            if (ids != null) {
+                eventLogRepository.releaseLocks(lockId, ids);
+                log.info("Released the lock {} of {} events.", lockId, ids.size());
+            }
+        }
+    }
+
+    private void trackLock(String lockId, Collection<Integer> ids) {
+        if (lockReleaseEnabled && !ids.isEmpty()) {
+            activeLocks.put(lockId, ids);
+        }
+    }
+
+    /**
+     * Removes the locks from the given events, which were neither deleted nor scheduled for a retry, if enabled.
+     */
+    private void releaseLocks(Collection<EventLog> unsentEvents) {
+        if (lockReleaseEnabled && !unsentEvents.isEmpty()) {
+            unsentEvents.stream()
+                    .filter(event -> event.getLockedBy() != null)
+                    .collect(Collectors.groupingBy(EventLog::getLockedBy,
+                            Collectors.mapping(EventLog::getId, Collectors.toList())))
+                    .forEach(eventLogRepository::releaseLocks);
+            log.debug("Released the locks of {} unsent events.", unsentEvents.size());
+        }
+    }
+
+    /**
+     * @param unsentEvents receives the events which were neither sent nor scheduled for a retry.
+     */
+    private int sendEvents(Iterator<EventLog> events, Collection<EventLog> unsentEvents) {
+        if (publishingConcurrency > 1) {
+            return sendEventsConcurrently(events, unsentEvents);
+        } else {
+            return pushEvents(events, unsentEvents, new EventBatcher(batch -> {
+                List<EventLog> successfulEvents = publishBatch(batch);
+                deleteEvents(successfulEvents);
+                retryOrCollect(failedEvents(batch, successfulEvents), unsentEvents);
+            }));
+        }
+    }
+
+    /**
+     * Publishes the batches of different event types concurrently (on virtual threads), while the batches of
+     * each event type are still published in order. At most twice the publishing concurrency of batches are
+     * submitted but not yet handled; reading further events waits until one of them completes. The successful
+     * events of each completed batch are deleted (and the failed ones scheduled for a retry) right away, on this
+     * thread (and thus in its transaction).
+     */
+    private int sendEventsConcurrently(Iterator<EventLog> events, Collection<EventLog> unsentEvents) {
+        Map<String, CompletableFuture<Void>> publishingsByEventType = new HashMap<>();
+        BlockingQueue<PublishedBatch> publishedBatches = new LinkedBlockingQueue<>();
+        int maxPendingBatches = 2 * publishingConcurrency;
+        int[] pendingBatches = new int[1];
+
+        int count = pushEvents(events, unsentEvents, new EventBatcher(batch -> {
+            PublishedBatch published;
+            while ((published = publishedBatches.poll()) != null) {
+                pendingBatches[0]--;
+                handlePublishedBatch(published, unsentEvents);
+            }
+            while (pendingBatches[0] >= maxPendingBatches) {
+                pendingBatches[0]--;
+                handlePublishedBatch(takePublishedBatch(publishedBatches), unsentEvents);
+            }
+            pendingBatches[0]++;
+            publishingsByEventType.compute(
+                    batch.get(0).getEventLogEntry().getEventType(),
+                    // a failed predecessor must not keep the following batches of its event type from being handled
+                    (eventType, previous) -> (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(e -> null))
+                            .thenRunAsync(() -> {
+                                List<EventLog> successfulBatchEvents = Collections.emptyList();
+                                try {
+                                    successfulBatchEvents = publishBatchWithPermit(batch);
+                                } finally {
+                                    publishedBatches.add(new PublishedBatch(batch, successfulBatchEvents));
+                                }
+                            }, publishingExecutor));
+        }));
+
+        while (pendingBatches[0] > 0) {
+            pendingBatches[0]--;
+            handlePublishedBatch(takePublishedBatch(publishedBatches), unsentEvents);
+        }
+        return count;
+    }
+
+    private static PublishedBatch takePublishedBatch(BlockingQueue<PublishedBatch> publishedBatches) {
+        try {
+            return publishedBatches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch to be published.", e);
+        }
+    }
+
+    private void handlePublishedBatch(PublishedBatch published, Collection<EventLog> unsentEvents) {
+        deleteEvents(published.getSuccessfulEvents());
+        retryOrCollect(failedEvents(published.getBatch(), published.getSuccessfulEvents()), unsentEvents);
+    }
+
+    /**
+     * Shuts down the executor used for concurrent publishing (if any). Batches which are currently being published
+     * are still completed.
+     */
+    @Override
+    public void close() {
+        if (publishingExecutor != null) {
+            publishingExecutor.shutdown();
+        }
+    }
+
+    private void deleteEvents(List<EventLog> events) {
+        if (!events.isEmpty()) {
+            long start = System.nanoTime();
+            eventLogRepository.delete(events);
+            metrics.recordDeletion(events.size(), Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
 
-        for (EventLog event : events) {
+    /**
+     * Makes the events available for the next attempt after the backoff, if configured. Otherwise they are
+     * retried once their lock expires (or is released).
+     */
+    private void retryOrCollect(List<EventLog> failedEvents, Collection<EventLog> unsentEvents) {
+        if (failedEvents.isEmpty()) {
+            return;
+        }
+        if (retryBackoff != null) {
+            eventLogRepository.scheduleRetry(failedEvents, now(), retryBackoff.getInitialBackoff(), retryBackoff.getMaxBackoff());
+            log.info("Scheduled {} events which could not be sent for a retry.", failedEvents.size());
+        } else {
+            unsentEvents.addAll(failedEvents);
+        }
+    }
+
+    private static List<EventLog> failedEvents(List<BatchItem> batch, List<EventLog> successfulEvents) {
+        if (successfulEvents.size() == batch.size()) {
+            return Collections.emptyList();
+        }
+        Set<EventLog> successful = Collections.newSetFromMap(new IdentityHashMap<>());
+        successful.addAll(successfulEvents);
+        return batch.stream()
+                .map(BatchItem::getEventLogEntry)
+                .filter(event -> !successful.contains(event))
+                .collect(Collectors.toList());
+    }
+
+    private List<EventLog> publishBatchWithPermit(List<BatchItem> batch) {
+        publishingPermits.acquireUninterruptibly();
+        try {
+            return publishBatch(batch);
+        } finally {
+            publishingPermits.release();
+        }
+    }
+
+    /**
+     * @return the number of events read from the iterator (including skipped ones).
+     */
+    private int pushEvents(Iterator<EventLog> events, Collection<EventLog> unsentEvents, EventBatcher batcher) {
+        int count = 0;
+        while (events.hasNext()) {
+            EventLog event = events.next();
+            count++;
             if (lockNearlyExpired(event)) {
                 // to avoid that two instances process this event, we skip it
+                metrics.recordSkippedEvent(event.getEventType());
+                unsentEvents.add(event);
                 continue;
             }
 
             NakadiEvent nakadiEvent;
 
             try {
+                long start = System.nanoTime();
                 nakadiEvent = mapToNakadiEvent(event);
+                metrics.recordSerialization(event.getEventType(), Duration.ofNanos(System.nanoTime() - start));
             } catch (Exception e) {
                 log.error("Could not serialize event {} of type {}, skipping it.", event.getId(), event.getEventType(), e);
+                metrics.recordSkippedEvent(event.getEventType());
+                unsentEvents.add(event);
                 continue;
             }
 
@@ -76,25 +422,55 @@ public class EventTransmissionService {
         }
 
         batcher.finish();
+        return count;
     }
 
     /**
      * Publishes a list of events.
      * All of the events in this list need to be destined for the same event type.
+     * @return the events which were published successfully.
      */
-    private void publishBatch(List<BatchItem> batch) {
+    private List<EventLog> publishBatch(List<BatchItem> batch) {
+        String eventType = batch.get(0).getEventLogEntry().getEventType();
+        long start = System.nanoTime();
+        boolean failed = false;
+        List<EventLog> successfulEvents = Collections.emptyList();
         try {
-            this.tryToPublishBatch(batch);
+            successfulEvents = this.tryToPublishBatch(batch);
+            return successfulEvents;
         } catch (Exception e) {
-            log.error("Could not send {} events of type {}, skipping them.", batch.size(), batch.get(0).getEventLogEntry().getEventType(), e);
+            failed = true;
+            log.error("Could not send {} events of type {}, skipping them.", batch.size(), eventType, e);
+            return successfulEvents;
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            long bytes = batch.stream().mapToLong(item -> EventBatcher.estimateSize(item.getEventLogEntry())).sum();
+            if (lockSizeController != null) {
+                lockSizeController.recordPublish(batch.size(), bytes, duration, failed);
+            }
+            recordPublishing(eventType, batch.size(), bytes, duration, successfulEvents);
+        }
+    }
+
+    private void recordPublishing(String eventType, int eventCount, long bytes, Duration duration, List<EventLog> successfulEvents) {
+        metrics.recordPublishing(eventType, eventCount, bytes, duration);
+        Instant publishedAt = now();
+        for (EventLog event : successfulEvents) {
+            metrics.recordSentEvent(eventType,
+                    event.getCreated() == null ? null : Duration.between(event.getCreated(), publishedAt));
+        }
+        if (successfulEvents.size() < eventCount) {
+            metrics.recordFailedEvents(eventType, eventCount - successfulEvents.size());
         }
     }
 
     /**
-     * Tries to publish a set of events (all of which need to belong to the same event type).
-     * The successful ones will be deleted from the database.
+     * Tries to publish a set of events (all of which need to belong to the same event type). The events are only
+     * serialized by the publishing client, so one event which can't be serialized fails the whole batch. In this
+     * case, the events which can't be serialized are left out (like failed ones), and the others are published again.
+     * @return the successful ones, which need to be deleted from the database.
      */
-    private void tryToPublishBatch(List<BatchItem> batch) throws Exception {
+    private List<EventLog> tryToPublishBatch(List<BatchItem> batch) throws Exception {
         Stream<EventLog> successfulEvents;
         String eventType = batch.get(0).getEventLogEntry().getEventType();
         try {
@@ -114,9 +490,41 @@ public class EventTransmissionService {
                     batch.stream()
                             .map(BatchItem::getEventLogEntry)
                             .filter(rawEvent -> !failedEids.contains(getEid(rawEvent)));
+        } catch (Exception e) {
+            if (!isSerializationFailure(e)) {
+                throw e;
+            }
+            List<BatchItem> serializableItems = withoutNonSerializableEvents(batch);
+            if (serializableItems.isEmpty() || serializableItems.size() == batch.size()) {
+                throw e;
+            }
+            return tryToPublishBatch(serializableItems);
         }
 
-        eventLogRepository.delete(successfulEvents.collect(Collectors.toList()));
+        return successfulEvents.collect(Collectors.toList());
+    }
+
+    private static boolean isSerializationFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<BatchItem> withoutNonSerializableEvents(List<BatchItem> batch) {
+        List<BatchItem> serializableItems = new ArrayList<>(batch.size());
+        for (BatchItem item : batch) {
+            try {
+                objectMapper.writeValueAsBytes(item.getNakadiEvent());
+                serializableItems.add(item);
+            } catch (Exception e) {
+                EventLog event = item.getEventLogEntry();
+                log.error("Could not serialize event {} of type {}, skipping it.", event.getId(), event.getEventType(), e);
+            }
+        }
+        return serializableItems;
     }
 
     private List<String> collectEids(EventPublishingException e) {
@@ -130,8 +538,24 @@ public class EventTransmissionService {
         return now().isAfter(eventLog.getLockedUntil().minus(lockDurationBuffer, SECONDS));
     }
 
-    private NakadiEvent mapToNakadiEvent(final EventLog event) throws IOException {
-        final NakadiEvent nakadiEvent = new NakadiEvent();
+    NakadiEvent mapToNakadiEvent(final EventLog event) throws IOException {
+        if (event.getEventBodyCompressed() != null) {
+            event.setEventBodyData(eventBodyCompressor.decompress(event.getEventBodyCompressed()));
+            // not needed anymore, and would double the memory used by the event while it is batched
+            event.setEventBodyCompressed(null);
+        }
+
+        final NakadiEvent nakadiEvent;
+        if (eventBodyPassthrough) {
+            if (eventBodyValidation) {
+                validateEventBody(event.getEventBodyData());
+            }
+            nakadiEvent = new RawNakadiEvent(event.getEventBodyData());
+        } else {
+            nakadiEvent = new NakadiEvent();
+            LinkedHashMap<String, Object> payloadDTO = objectMapper.readValue(event.getEventBodyData(), new TypeReference<LinkedHashMap<String, Object>>() { });
+            nakadiEvent.setData(payloadDTO);
+        }
 
         final NakadiMetadata metadata = new NakadiMetadata();
         metadata.setEid(getEid(event));
@@ -140,13 +564,25 @@ public class EventTransmissionService {
         metadata.setPartitionCompactionKey(event.getCompactionKey());
         nakadiEvent.setMetadata(metadata);
 
-        LinkedHashMap<String, Object> payloadDTO = objectMapper.readValue(event.getEventBodyData(), new TypeReference<LinkedHashMap<String, Object>>() { });
-
-        nakadiEvent.setData(payloadDTO);
-
         return nakadiEvent;
     }
 
+    /**
+     * Checks that the body is exactly one syntactically valid JSON object. This only runs the tokenizer over
+     * the body, no object tree is built.
+     */
+    private void validateEventBody(String eventBodyData) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(eventBodyData)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Event body is not a JSON object.");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the event body.");
+            }
+        }
+    }
+
     private Instant now() {
         return clock.instant();
     }
@@ -168,4 +604,11 @@ public class EventTransmissionService {
         }
     }
 
+    @AllArgsConstructor
+    @Getter
+    private static class PublishedBatch {
+        private final List<BatchItem> batch;
+        private final List<EventLog> successfulEvents;
+    }
+
 }
@@ -0,0 +1,80 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.zalando.nakadiproducer.eventlog.impl.EventBodyCompressor;
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
+
+/**
+ * The optional settings of an {@link EventTransmissionService}. Everything not set keeps the behavior of a service
+ * created without settings.
+ */
+@Builder
+@Getter
+@ToString
+public class EventTransmissionSettings {
+
+    /**
+     * The number of seconds events are locked for.
+     */
+    @Builder.Default
+    private final int lockDuration = 600;
+
+    /**
+     * The number of seconds before the expiry of its lock after which an event is not sent anymore.
+     */
+    @Builder.Default
+    private final int lockDurationBuffer = 60;
+
+    /**
+     * If true, the stored event bodies are embedded as-is into the submitted events, instead of being parsed and
+     * serialized again.
+     */
+    private final boolean eventBodyPassthrough;
+
+    /**
+     * Only relevant with passthrough: if true, the stored event bodies are checked to be syntactically valid JSON
+     * objects before submission (without building an object tree). Invalid events are skipped.
+     */
+    private final boolean eventBodyValidation;
+
+    /**
+     * The maximum number of batches which are published at the same time. Batches of the same event type are always
+     * published one after the other.
+     */
+    @Builder.Default
+    private final int publishingConcurrency = 1;
+
+    /**
+     * Used to decompress the event bodies which were stored compressed. It needs to know all dictionaries which were
+     * used for compressing.
+     */
+    @Builder.Default
+    private final EventBodyCompressor eventBodyCompressor = new EventBodyCompressor();
+
+    /**
+     * If not null, the number of events locked at once is taken from this controller (which is informed about each
+     * published batch), instead of the fixed lock size of the repository.
+     */
+    private final AimdLockSizeController lockSizeController;
+
+    /**
+     * Receives measurements of the transmission steps.
+     */
+    @Builder.Default
+    private final EventTransmissionMetrics metrics = EventTransmissionMetrics.NOOP;
+
+    /**
+     * If not null, events which could not be published are made available again after this backoff, instead of when
+     * their lock expires.
+     */
+    private final RetryBackoff retryBackoff;
+
+    /**
+     * If true, the locks of events which were neither sent nor scheduled for a retry (e.g. skipped ones) are released
+     * at the end of each run and on {@link EventTransmissionService#releaseAllLocks()}, instead of being kept until
+     * they expire.
+     */
+    private final boolean lockReleaseEnabled;
+}
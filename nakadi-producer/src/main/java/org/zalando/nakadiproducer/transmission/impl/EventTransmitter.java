@@ -1,13 +1,133 @@
 package org.zalando.nakadiproducer.transmission.impl;
 
-public class EventTransmitter {
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.nakadiproducer.eventlog.impl.EventLog;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+public class EventTransmitter implements AutoCloseable {
+    private static final int DEFAULT_MAX_PIPELINED_LOCKS = 10;
+
     private final EventTransmissionService eventTransmissionService;
+    private final boolean streamingEnabled;
+    private final ExecutorService lockingExecutor;
+    private final int maxPipelinedLocks;
 
     public EventTransmitter(EventTransmissionService eventTransmissionService) {
+        this(eventTransmissionService, false);
+    }
+
+    public EventTransmitter(EventTransmissionService eventTransmissionService, boolean streamingEnabled) {
+        this(eventTransmissionService, streamingEnabled, false);
+    }
+
+    public EventTransmitter(EventTransmissionService eventTransmissionService, boolean streamingEnabled, boolean pipeliningEnabled) {
+        this(eventTransmissionService, streamingEnabled, pipeliningEnabled, DEFAULT_MAX_PIPELINED_LOCKS);
+    }
+
+    /**
+     * @param streamingEnabled  if true, the locked events are read from the database while they are being sent,
+     *                          instead of being loaded into memory at once.
+     * @param pipeliningEnabled if true, the next set of events is already locked while the current one is being
+     *                          sent, and {@link #sendEvents()} continues until no more events are found (or
+     *                          maxPipelinedLocks sets of events were sent). This can't be combined with streaming,
+     *                          which takes precedence.
+     * @param maxPipelinedLocks the maximum number of sets of events which are locked and sent in one pipelined run,
+     *                          so that a steady stream of new events doesn't keep the run from ending.
+     */
+    public EventTransmitter(EventTransmissionService eventTransmissionService, boolean streamingEnabled, boolean pipeliningEnabled,
+                            int maxPipelinedLocks) {
+        if (maxPipelinedLocks < 1) {
+            throw new IllegalArgumentException("maxPipelinedLocks must be at least 1, but was " + maxPipelinedLocks);
+        }
         this.eventTransmissionService = eventTransmissionService;
+        this.maxPipelinedLocks = maxPipelinedLocks;
+        this.streamingEnabled = streamingEnabled;
+        if (pipeliningEnabled && streamingEnabled) {
+            log.warn("Pipelined transmission can't be combined with streaming transmission, it will not be used.");
+        }
+        this.lockingExecutor = pipeliningEnabled && !streamingEnabled
+                ? Executors.newSingleThreadExecutor(Thread.ofPlatform().name("nakadi-producer-locking").daemon().factory())
+                : null;
     }
 
+    /**
+     * Locks some events and sends them.
+     */
     public void sendEvents() {
-        eventTransmissionService.sendEvents(eventTransmissionService.lockSomeEvents());
+        transmit();
+    }
+
+    /**
+     * Like {@link #sendEvents()}, but also tells how many events were locked (and thus tried to be sent), and whether
+     * the lock was cut off by its limit, so that the caller can decide to send again right away.
+     */
+    public TransmissionRun transmit() {
+        if (streamingEnabled) {
+            return eventTransmissionService.sendLockedEvents(eventTransmissionService.lockSomeEventsForStreaming());
+        } else if (lockingExecutor != null) {
+            return sendEventsPipelined();
+        } else {
+            Collection<EventLog> events = eventTransmissionService.lockSomeEvents();
+            boolean lockLimitReached = eventTransmissionService.isLockLimitReached(events);
+            eventTransmissionService.sendEvents(events);
+            return new TransmissionRun(events.size(), lockLimitReached);
+        }
+    }
+
+    /**
+     * Sends the locked events while the next ones are locked in the background, until no more events are found
+     * or the maximum number of locks per run is reached. The last locked events are always sent before returning,
+     * and the run reports whether their lock was cut off by its limit. If sending fails with an exception, the
+     * events locked in the meantime are left to the lock expiry (or released on {@link #close()}, if lock release
+     * is enabled).
+     */
+    private TransmissionRun sendEventsPipelined() {
+        int count = 0;
+        LockedEvents locked = lockEvents();
+        for (int locks = 1; !locked.getEvents().isEmpty(); locks++) {
+            count += locked.getEvents().size();
+            if (locks >= maxPipelinedLocks) {
+                eventTransmissionService.sendEvents(locked.getEvents());
+                return new TransmissionRun(count, locked.isLockLimitReached());
+            }
+            CompletableFuture<LockedEvents> nextEvents = CompletableFuture.supplyAsync(this::lockEvents, lockingExecutor);
+            eventTransmissionService.sendEvents(locked.getEvents());
+            locked = nextEvents.join();
+        }
+        return new TransmissionRun(count, false);
+    }
+
+    private LockedEvents lockEvents() {
+        Collection<EventLog> events = eventTransmissionService.lockSomeEvents();
+        return new LockedEvents(events, eventTransmissionService.isLockLimitReached(events));
+    }
+
+    /**
+     * Stops the background locking, and releases the locks of the events which were not sent yet (if enabled).
+     */
+    @Override
+    public void close() {
+        if (lockingExecutor != null) {
+            lockingExecutor.shutdown();
+        }
+        try {
+            eventTransmissionService.releaseAllLocks();
+        } catch (RuntimeException e) {
+            log.warn("Could not release the event locks on shutdown, they will expire instead.", e);
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static class LockedEvents {
+        private final Collection<EventLog> events;
+        private final boolean lockLimitReached;
     }
 }
@@ -0,0 +1,91 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+
+/**
+ * A {@link NakadiEvent} whose payload is the JSON object stored in the event log, embedded as-is.
+ * <p>
+ * Instead of parsing the stored body into a map (which Jackson then serializes again), the members
+ * of the stored JSON object are copied verbatim into the serialized event, next to the metadata.
+ * The body is only checked for looking like a JSON object (i.e. being enclosed in curly braces),
+ * anything else is not validated here.
+ * </p>
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@JsonSerialize(using = RawNakadiEvent.Serializer.class)
+public class RawNakadiEvent extends NakadiEvent {
+
+    private final String body;
+
+    // start (inclusive) and end (exclusive) of the object members inside of body, i.e. without the braces.
+    private final int membersStart;
+    private final int membersEnd;
+
+    /**
+     * @param body the stored event body. It needs to be a JSON object.
+     * @throws IllegalArgumentException if the body is not enclosed in curly braces.
+     */
+    public RawNakadiEvent(String body) {
+        int start = skipWhitespaceForward(body, 0);
+        int end = skipWhitespaceBackward(body, body.length());
+        if (start >= end - 1 || body.charAt(start) != '{' || body.charAt(end - 1) != '}') {
+            throw new IllegalArgumentException("Event body is not a JSON object.");
+        }
+        this.body = body;
+        this.membersStart = skipWhitespaceForward(body, start + 1);
+        this.membersEnd = skipWhitespaceBackward(body, end - 1);
+    }
+
+    /**
+     * @return the number of characters which the payload contributes to the serialized event.
+     */
+    public int getMembersLength() {
+        return Math.max(0, membersEnd - membersStart);
+    }
+
+    private static int skipWhitespaceForward(String s, int index) {
+        while (index < s.length() && Character.isWhitespace(s.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespaceBackward(String s, int index) {
+        while (index > 0 && Character.isWhitespace(s.charAt(index - 1))) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Writes the metadata as a normal property, and then the members of the stored body as raw JSON.
+     * This produces the same structure as the "any getter" in {@link NakadiEvent}.
+     */
+    public static class Serializer extends StdSerializer<RawNakadiEvent> {
+
+        public Serializer() {
+            super(RawNakadiEvent.class);
+        }
+
+        @Override
+        public void serialize(RawNakadiEvent event, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(event);
+            provider.defaultSerializeField("metadata", event.getMetadata(), gen);
+            if (event.getMembersLength() > 0) {
+                gen.writeRaw(',');
+                gen.writeRaw(event.body, event.membersStart, event.getMembersLength());
+            }
+            gen.writeEndObject();
+        }
+    }
+}
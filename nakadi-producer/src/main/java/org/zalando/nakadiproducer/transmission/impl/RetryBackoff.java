@@ -0,0 +1,27 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How long events which could not be sent wait before they are tried again: the initial backoff after the first
+ * failed attempt, doubled with each further failed attempt, but never longer than the maximum backoff.
+ */
+@Getter
+@ToString
+public class RetryBackoff {
+
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public RetryBackoff(Duration initialBackoff, Duration maxBackoff) {
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException(
+                    "Retry backoffs must satisfy 0 <= initial <= max, but were " + initialBackoff + " and " + maxBackoff);
+        }
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+}
@@ -0,0 +1,23 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The outcome of one run of {@link EventTransmitter#transmit()}.
+ */
+@AllArgsConstructor
+@Getter
+@ToString
+public class TransmissionRun {
+    /**
+     * The number of events which were locked (and thus tried to be sent).
+     */
+    private final int lockedEvents;
+    /**
+     * Whether the last lock was cut off by the lock size (or another limit, like the byte budget), so that more
+     * events are probably waiting to be sent.
+     */
+    private final boolean lockLimitReached;
+}
@@ -0,0 +1,56 @@
+package org.zalando.nakadiproducer.eventlog.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EventBodyCompressorTest {
+
+    private static final String BODY =
+            "{\"data_op\":\"C\",\"data_type\":\"nakadi:some-publisher\",\"data\":{\"id\":1,\"code\":\"Zürich €\"}}";
+    private static final byte[] DICTIONARY =
+            "{\"data_op\":\"U\",\"data_type\":\"nakadi:some-publisher\",\"data\":{\"id\":2,\"code\":\"\"}}".getBytes(UTF_8);
+
+    @Test
+    public void shouldDecompressToTheOriginalBody() {
+        EventBodyCompressor compressor = new EventBodyCompressor();
+
+        assertThat(compressor.decompress(compressor.compress("type", BODY)), is(BODY));
+    }
+
+    @Test
+    public void shouldCompressSmallerWithDictionary() {
+        EventBodyCompressor compressor = new EventBodyCompressor();
+        EventBodyCompressor dictionaryCompressor = new EventBodyCompressor(Map.of("type", DICTIONARY));
+
+        byte[] compressed = dictionaryCompressor.compress("type", BODY);
+
+        assertThat(compressed.length, lessThan(compressor.compress("type", BODY).length));
+        assertThat(dictionaryCompressor.decompress(compressed), is(BODY));
+        // other event types are compressed without dictionary
+        assertThat(compressor.decompress(dictionaryCompressor.compress("other-type", BODY)), is(BODY));
+    }
+
+    @Test
+    public void shouldDecompressWithRetiredDictionary() {
+        byte[] compressed = new EventBodyCompressor(Map.of("type", DICTIONARY)).compress("type", BODY);
+        EventBodyCompressor compressor =
+                new EventBodyCompressor(Map.of(), Map.of("old", DICTIONARY), Deflater.DEFAULT_COMPRESSION);
+
+        assertThat(compressor.decompress(compressed), is(BODY));
+    }
+
+    @Test
+    public void shouldFailForUnknownDictionary() {
+        byte[] compressed = new EventBodyCompressor(Map.of("type", DICTIONARY)).compress("type", BODY);
+
+        assertThrows(IllegalStateException.class, () -> new EventBodyCompressor().decompress(compressed));
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -53,10 +54,34 @@ public class EventLogBuilderImplTest {
         verify(eidGeneratorStrategy).generateEid();
     }
 
+    @Test
+    public void testCreateCompressedEventLog() throws Exception {
+        EventBodyCompressor compressor = new EventBodyCompressor();
+        EventLogBuilderImpl compressingBuilder =
+                new EventLogBuilderImpl(objectMapper, flowIdComponent, eidGeneratorStrategy, compressor);
+        Object eventPayload = Fixture.mockPayload(42, "bla");
+
+        EventLog actual = compressingBuilder.buildEventLog(EVENT_TYPE, eventPayload, COMPACTION_KEY);
+
+        assertThat(actual.getEventBodyData(), Matchers.nullValue());
+        assertThat(actual.getEventBodySize(), Matchers.is(objectMapper.writeValueAsBytes(eventPayload).length));
+        assertThat(compressor.decompress(actual.getEventBodyCompressed()),
+                Matchers.is(objectMapper.writeValueAsString(eventPayload)));
+    }
+
+    @Test
+    public void testUtf8LengthMatchesEncodedLength() {
+        String text = "a\u00e4\u20ac\ud83d\ude00";
+
+        assertThat(EventLogBuilderImpl.utf8Length(text), Matchers.is(text.getBytes(StandardCharsets.UTF_8).length));
+        assertThat(EventLogBuilderImpl.utf8Length(null), Matchers.is(0));
+    }
+
     private EventLog getEventLog(Object eventPayload) throws JsonProcessingException {
         return EventLog.builder()
             .eventType(EVENT_TYPE)
             .eventBodyData(objectMapper.writeValueAsString(eventPayload))
+            .eventBodySize(objectMapper.writeValueAsBytes(eventPayload).length)
             .flowId(TRACE_ID)
             .compactionKey(COMPACTION_KEY)
             .eid(EID)
@@ -122,6 +122,19 @@ public class EventLogWriterMultipleTypesTest {
         assertThat(compactionKeys, contains(equalTo("Hello"), equalTo("World"), equalTo("List?")));
     }
 
+    @Test
+    public void persistedEventsAreHandedToTheListener() {
+        mockCreateEventLog(eventPayload1, null);
+        mockCreateEventLog(eventPayload2, null);
+        PersistedEventsListener listener = Mockito.mock(PersistedEventsListener.class);
+
+        eventLogWriter = new EventLogWriterImpl(eventLogRepository, eventLogBuilder, List.of(), listener);
+        eventLogWriter.fireCreateEvents(PUBLISHER_EVENT_TYPE, "", asList(eventPayload1, eventPayload2));
+
+        verify(eventLogRepository).persist(eventLogsCapture.capture());
+        verify(listener).eventsPersisted(eventLogsCapture.getValue());
+    }
+
     private List<String> getPersistedCompactionKeys() {
         verify(eventLogRepository).persist(eventLogsCapture.capture());
         Collection<EventLog> eventLogs = eventLogsCapture.getValue();
@@ -0,0 +1,62 @@
+package org.zalando.nakadiproducer.transmission.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AimdLockSizeControllerTest {
+
+    private static final Duration TARGET_LATENCY = Duration.ofMillis(500);
+    private static final Duration FAST = Duration.ofMillis(100);
+    private static final Duration SLOW = Duration.ofMillis(800);
+
+    private final AimdLockSizeController controller = new AimdLockSizeController(100, 10, 200, 10, TARGET_LATENCY);
+
+    @Test
+    public void shouldIncreaseAdditivelyWhenFastEnough() {
+        controller.recordPublish(100, 100000, FAST, false);
+        controller.recordPublish(110, 110000, FAST, false);
+
+        assertThat(controller.getLockSize(), is(120));
+    }
+
+    @Test
+    public void shouldDecreaseMultiplicativelyWhenSlowOrFailed() {
+        controller.recordPublish(100, 100000, SLOW, false);
+        assertThat(controller.getLockSize(), is(50));
+
+        controller.recordPublish(50, 50000, FAST, true);
+        assertThat(controller.getLockSize(), is(25));
+    }
+
+    @Test
+    public void shouldStayWithinBounds() {
+        for (int i = 0; i < 20; i++) {
+            controller.recordPublish(10, 10000, FAST, false);
+        }
+        assertThat(controller.getLockSize(), is(200));
+
+        for (int i = 0; i < 20; i++) {
+            controller.recordPublish(10, 10000, SLOW, false);
+        }
+        assertThat(controller.getLockSize(), is(10));
+    }
+
+    @Test
+    public void shouldLimitLockSizeToWhatFitsIntoOneBatch() {
+        // 1 MB per event, so only 40 events fit into one batch
+        controller.recordPublish(10, 10_000_000, FAST, false);
+
+        assertThat(controller.getLockSize(), is(40));
+    }
+
+    @Test
+    public void shouldRejectInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AimdLockSizeController(100, 0, 200, 10, TARGET_LATENCY));
+        assertThrows(IllegalArgumentException.class, () -> new AimdLockSizeController(100, 20, 10, 10, TARGET_LATENCY));
+    }
+}
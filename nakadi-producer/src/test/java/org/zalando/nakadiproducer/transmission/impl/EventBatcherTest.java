@@ -2,7 +2,9 @@ package org.zalando.nakadiproducer.transmission.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.zalando.nakadiproducer.eventlog.impl.EventLog;
 import org.zalando.nakadiproducer.transmission.impl.EventBatcher.BatchItem;
 
@@ -12,17 +14,20 @@ import java.util.function.Consumer;
 import static java.time.Instant.now;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 public class EventBatcherTest {
-    private final ObjectMapper objectMapper = mock(ObjectMapper.class);
     private final Consumer<List<BatchItem>> publisher = mock(Consumer.class);
-    private final EventBatcher eventBatcher = new EventBatcher(objectMapper, publisher);
+    private final EventBatcher eventBatcher = new EventBatcher(publisher);
 
     @Test
     public void shouldNotPublishEmptyBatches() {
@@ -32,12 +37,10 @@ public class EventBatcherTest {
     }
 
     @Test
-    public void shouldPublishNonFilledBatchOnFinish() throws JsonProcessingException {
-        EventLog eventLogEntry = eventLogEntry(1, "type");
+    public void shouldPublishNonFilledBatchOnFinish() {
+        EventLog eventLogEntry = eventLogEntry(1, "type", 500);
         NakadiEvent nakadiEvent = nakadiEvent("1");
 
-        when(objectMapper.writeValueAsBytes(any())).thenReturn(new byte[500]);
-
         eventBatcher.pushEvent(eventLogEntry, nakadiEvent);
         verify(publisher, never()).accept(any());
 
@@ -46,30 +49,55 @@ public class EventBatcherTest {
     }
 
     @Test
-    public void shouldPublishNonFilledBatchOnEventTypeChange() throws JsonProcessingException {
-        EventLog eventLogEntry1 = eventLogEntry(1, "type1");
-        EventLog eventLogEntry2 = eventLogEntry(2, "type2");
+    public void shouldGroupInterleavedEventTypesIntoOneBatchPerType() {
+        EventLog eventLogEntry1 = eventLogEntry(1, "type1", 500);
+        EventLog eventLogEntry2 = eventLogEntry(2, "type2", 500);
+        EventLog eventLogEntry3 = eventLogEntry(3, "type1", 500);
         NakadiEvent nakadiEvent1 = nakadiEvent("1");
         NakadiEvent nakadiEvent2 = nakadiEvent("2");
+        NakadiEvent nakadiEvent3 = nakadiEvent("3");
+
+        eventBatcher.pushEvent(eventLogEntry1, nakadiEvent1);
+        eventBatcher.pushEvent(eventLogEntry2, nakadiEvent2);
+        eventBatcher.pushEvent(eventLogEntry3, nakadiEvent3);
+        verify(publisher, never()).accept(any());
 
-        when(objectMapper.writeValueAsBytes(any())).thenReturn(new byte[500]);
+        eventBatcher.finish();
+        InOrder inOrder = inOrder(publisher);
+        inOrder.verify(publisher).accept(eq(asList(
+                new BatchItem(eventLogEntry1, nakadiEvent1),
+                new BatchItem(eventLogEntry3, nakadiEvent3)
+        )));
+        inOrder.verify(publisher).accept(eq(singletonList(new BatchItem(eventLogEntry2, nakadiEvent2))));
+    }
+
+    @Test
+    public void shouldOnlyPublishFilledBatchOfTheSameEventType() {
+        EventLog eventLogEntry1 = eventLogEntry(1, "type1", 30000000);
+        EventLog eventLogEntry2 = eventLogEntry(2, "type2", 30000000);
+        EventLog eventLogEntry3 = eventLogEntry(3, "type1", 30000000);
+        NakadiEvent nakadiEvent1 = nakadiEvent("1");
+        NakadiEvent nakadiEvent2 = nakadiEvent("2");
+        NakadiEvent nakadiEvent3 = nakadiEvent("3");
 
         eventBatcher.pushEvent(eventLogEntry1, nakadiEvent1);
         eventBatcher.pushEvent(eventLogEntry2, nakadiEvent2);
+        // the type1 batch would become too big, the type2 batch stays open
+        eventBatcher.pushEvent(eventLogEntry3, nakadiEvent3);
+
         verify(publisher).accept(eq(singletonList(new BatchItem(eventLogEntry1, nakadiEvent1))));
+        verify(publisher, never()).accept(eq(singletonList(new BatchItem(eventLogEntry2, nakadiEvent2))));
     }
 
     @Test
-    public void shouldPublishFilledBatchOnSubmissionOfNewEvent() throws JsonProcessingException {
-        EventLog eventLogEntry1 = eventLogEntry(1, "type1");
-        EventLog eventLogEntry2 = eventLogEntry(2, "type1");
-        EventLog eventLogEntry3 = eventLogEntry(3, "type1");
+    public void shouldPublishFilledBatchOnSubmissionOfNewEvent() {
+        EventLog eventLogEntry1 = eventLogEntry(1, "type1", 15000000);
+        EventLog eventLogEntry2 = eventLogEntry(2, "type1", 15000000);
+        EventLog eventLogEntry3 = eventLogEntry(3, "type1", 15000000);
         NakadiEvent nakadiEvent1 = nakadiEvent("1");
         NakadiEvent nakadiEvent2 = nakadiEvent("2");
         NakadiEvent nakadiEvent3 = nakadiEvent("3");
 
-        when(objectMapper.writeValueAsBytes(any())).thenReturn(new byte[15000000]);
-
         // 15 MB batch size
         eventBatcher.pushEvent(eventLogEntry1, nakadiEvent1);
         // 30 MB batch size
@@ -85,16 +113,12 @@ public class EventBatcherTest {
     }
 
     @Test
-    public void shouldTryPublishEventsIndividuallyWhenTheyExceedBatchThresholdThe() throws JsonProcessingException {
-        EventLog eventLogEntry1 = eventLogEntry(1, "type1");
-        EventLog eventLogEntry2 = eventLogEntry(2, "type1");
+    public void shouldTryPublishEventsIndividuallyWhenTheyExceedBatchThresholdThe() {
+        EventLog eventLogEntry1 = eventLogEntry(1, "type1", 45000000);
+        EventLog eventLogEntry2 = eventLogEntry(2, "type1", 450);
         NakadiEvent nakadiEvent1 = nakadiEvent("1");
         NakadiEvent nakadiEvent2 = nakadiEvent("2");
 
-        when(objectMapper.writeValueAsBytes(any()))
-                .thenReturn(new byte[45000000])
-                .thenReturn(new byte[450]);
-
         // 45 MB batch size => will form a batch of its own
         eventBatcher.pushEvent(eventLogEntry1, nakadiEvent1);
         // ... and be submitted with the next event added
@@ -104,28 +128,36 @@ public class EventBatcherTest {
     }
 
     @Test
-    public void willGracefullySkipNonSerializableEvents() throws JsonProcessingException {
-        EventLog eventLogEntry1 = eventLogEntry(1, "type1");
-        EventLog eventLogEntry2 = eventLogEntry(2, "type1");
-        NakadiEvent nakadiEvent1 = nakadiEvent("1");
-        NakadiEvent nakadiEvent2 = nakadiEvent("2");
-
-        when(objectMapper.writeValueAsBytes(any()))
-                .thenThrow(new IllegalStateException())
-                .thenReturn(new byte[450]);
+    public void shouldEstimateSizeWithoutUnderestimatingTheSerializedEvent() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModules(new JavaTimeModule());
+        EventLog eventLogEntry = new EventLog(1, "type", "{\"name\":\"Zürich €\",\"emoji\":\"\uD83D\uDE00\",\"count\":42}",
+                "flow-id", now(), now(), "me", now(), "compaction-key");
+        NakadiEvent nakadiEvent = nakadiEvent("00000000-0000-0000-0000-000000000001");
+        nakadiEvent.getMetadata().setOccuredAt(now());
+        nakadiEvent.getMetadata().setFlowId("flow-id");
+        nakadiEvent.getMetadata().setPartitionCompactionKey("compaction-key");
+        nakadiEvent.setData(objectMapper.readValue(eventLogEntry.getEventBodyData(), java.util.LinkedHashMap.class));
+
+        int serializedSize = objectMapper.writeValueAsBytes(asList(nakadiEvent)).length;
+        long estimatedSize = EventBatcher.estimateSize(eventLogEntry);
+
+        // the estimate counts the braces of the body and a separator, but not the array brackets
+        assertThat(estimatedSize, greaterThanOrEqualTo((long) serializedSize));
+        assertThat(estimatedSize, lessThan(serializedSize + 20L));
+    }
 
-        // non serializable
-        eventBatcher.pushEvent(eventLogEntry1, nakadiEvent1);
-        // serializable
-        eventBatcher.pushEvent(eventLogEntry2, nakadiEvent2);
-        // and flush it
-        eventBatcher.finish();
+    @Test
+    public void shouldCountTheEscapedFormOfCharactersOutsideTheBasicPlane() {
+        long emptySize = EventBatcher.estimateSize(new EventLog(1, "type", "", null, now(), now(), "me", now(), null));
 
-        verify(publisher).accept(eq(singletonList(new BatchItem(eventLogEntry2, nakadiEvent2))));
+        assertThat(EventBatcher.estimateSize(new EventLog(1, "type", "ü€", null, now(), now(), "me", now(), null)),
+                is(emptySize + 5));
+        assertThat(EventBatcher.estimateSize(
+                new EventLog(1, "type", "\uD83D\uDE00", null, now(), now(), "me", now(), null)), is(emptySize + 12));
     }
 
-    private EventLog eventLogEntry(int id, String type) {
-        return new EventLog(id, type, "body", "flow", now(), now(), "me", now(), null);
+    private EventLog eventLogEntry(int id, String type, int bodySize) {
+        return new EventLog(id, type, "x".repeat(bodySize), "flow", now(), now(), "me", now(), null);
     }
 
     private NakadiEvent nakadiEvent(String eid) {
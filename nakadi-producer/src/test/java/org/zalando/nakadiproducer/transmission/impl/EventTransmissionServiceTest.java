@@ -2,6 +2,7 @@ package org.zalando.nakadiproducer.transmission.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,19 +13,29 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.zalando.fahrschein.RawEventPersistenceException;
 import org.zalando.fahrschein.domain.BatchItemResponse;
+import org.zalando.nakadiproducer.eventlog.impl.EventBodyCompressor;
 import org.zalando.nakadiproducer.eventlog.impl.EventLog;
 import org.zalando.nakadiproducer.eventlog.impl.EventLogRepository;
+import org.zalando.nakadiproducer.transmission.EventTransmissionMetrics;
 import org.zalando.nakadiproducer.transmission.MockNakadiPublishingClient;
+import org.zalando.nakadiproducer.transmission.NakadiPublishingClient;
 import org.zalando.nakadiproducer.util.Fixture;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.jayway.jsonpath.JsonPath.read;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.now;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static java.time.temporal.ChronoUnit.SECONDS;
@@ -37,7 +48,9 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -46,6 +59,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 public class EventTransmissionServiceTest {
 
@@ -55,6 +69,8 @@ public class EventTransmissionServiceTest {
     private EventLogRepository repo;
     @Captor
     private ArgumentCaptor<Collection<EventLog>> eventLogColCaptor;
+    @Captor
+    private ArgumentCaptor<Collection<EventLog>> retriedEventsCaptor;
 
     @BeforeEach
     public void setUp() {
@@ -148,6 +164,30 @@ public class EventTransmissionServiceTest {
         assertThat(deletedEvents, containsInAnyOrder(ev1, ev3));
     }
 
+    @Test
+    public void willGracefullySkipNonSerializableEvents() throws Exception {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        doThrow(new JsonMappingException(null, "not serializable"))
+                .when(mapper).writeValueAsBytes(argThat((Object event) -> event instanceof NakadiEvent nakadiEvent
+                        && nakadiEvent.getMetadata().getEid().equals("00000000-0000-0000-0000-000000000001")));
+        NakadiPublishingClient serializingClient = (eventType, nakadiEvents) -> {
+            for (Object nakadiEvent : nakadiEvents) {
+                mapper.writeValueAsBytes(nakadiEvent);
+            }
+            publishingClient.publish(eventType, nakadiEvents);
+        };
+        EventTransmissionService serializingService = new EventTransmissionService(repo, serializingClient, mapper, 600, 60);
+
+        serializingService.sendEvents(Arrays.asList(ev1, ev2));
+
+        List<String> type1Events = publishingClient.getSentEvents("type1");
+        assertThat(type1Events, hasSize(1));
+        assertThat(read(type1Events.get(0), "$.metadata.eid"), is("00000000-0000-0000-0000-000000000002"));
+        assertThat(verifyDeletionAndGetAllDeletedEvents(), containsInAnyOrder(ev2));
+    }
+
     @Test
     public void testUnknownErrorInTransmissionIsHandledGracefully() throws Exception {
         String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
@@ -207,6 +247,110 @@ public class EventTransmissionServiceTest {
         assertThat(deletedEvents, containsInAnyOrder(ev1, ev3));
     }
 
+    @Test
+    public void testFailedEventsAreScheduledForRetry() throws Exception {
+        RetryBackoff backoff = new RetryBackoff(Duration.ofSeconds(1), Duration.ofMinutes(10));
+        EventTransmissionService retryingService = new EventTransmissionService(repo, publishingClient, mapper,
+                EventTransmissionSettings.builder().retryBackoff(backoff).build());
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        EventLog ev3 = new EventLog(3, "type2", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        EventLog ev4 = new EventLog(4, "type3", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+
+        doThrow(new RawEventPersistenceException(new BatchItemResponse[]{
+                new BatchItemResponse("00000000-0000-0000-0000-000000000002", BatchItemResponse.PublishingStatus.FAILED, BatchItemResponse.Step.PUBLISHING, "Something went wrong")
+        }))
+                .when(publishingClient).publish(eq("type1"), any());
+        doThrow(new IllegalStateException("failed"))
+                .when(publishingClient).publish(eq("type3"), any());
+
+        retryingService.sendEvents(Arrays.asList(ev1, ev2, ev3, ev4));
+
+        assertThat(verifyDeletionAndGetAllDeletedEvents(), containsInAnyOrder(ev1, ev3));
+        verify(repo, Mockito.atLeastOnce()).scheduleRetry(retriedEventsCaptor.capture(), any(),
+                eq(Duration.ofSeconds(1)), eq(Duration.ofMinutes(10)));
+        List<EventLog> retriedEvents = retriedEventsCaptor.getAllValues().stream()
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+        assertThat(retriedEvents, containsInAnyOrder(ev2, ev4));
+    }
+
+    @Test
+    public void testFailedEventsAreNotRescheduledWithoutRetryBackoff() throws Exception {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+
+        doThrow(new IllegalStateException("failed"))
+                .when(publishingClient).publish(eq("type1"), any());
+
+        service.sendEvents(singletonList(ev1));
+
+        verify(repo, never()).scheduleRetry(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testLocksOfUnsentEventsAreReleasedAfterSending() throws Exception {
+        EventTransmissionService releasingService = new EventTransmissionService(repo, publishingClient, mapper,
+                EventTransmissionSettings.builder().lockReleaseEnabled(true).build());
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type1", payloadString, null, now(), now(), "lock", now().plus(30, SECONDS), null);
+
+        doThrow(new IllegalStateException("failed"))
+                .when(publishingClient).publish(eq("type1"), any());
+
+        releasingService.sendEvents(Arrays.asList(ev1, ev2));
+
+        ArgumentCaptor<Collection<Integer>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(repo).releaseLocks(eq("lock"), ids.capture());
+        assertThat(ids.getValue(), containsInAnyOrder(1, 2));
+
+        // the run is finished, so there is nothing left to release on shutdown
+        releasingService.releaseAllLocks();
+        verify(repo).releaseLocks(any(), any());
+    }
+
+    @Test
+    public void testLocksOfUnfinishedRunsAreReleasedOnShutdown() {
+        EventTransmissionService releasingService = new EventTransmissionService(repo, publishingClient, mapper,
+                EventTransmissionSettings.builder().lockReleaseEnabled(true).build());
+        EventLog ev = new EventLog(1, "type1", "{}", null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        when(repo.claimSomeMessages(any(), any(), any())).thenReturn(singletonList(ev));
+
+        releasingService.lockSomeEvents();
+        releasingService.releaseAllLocks();
+
+        verify(repo).releaseLocks(any(), eq(List.of(1)));
+
+        // a second shutdown has nothing left to release
+        releasingService.releaseAllLocks();
+        verify(repo).releaseLocks(any(), any());
+    }
+
+    @Test
+    public void testStreamedLocksOfUnfinishedRunsAreReleasedOnShutdown() {
+        EventTransmissionService releasingService = new EventTransmissionService(repo, publishingClient, mapper,
+                EventTransmissionSettings.builder().lockReleaseEnabled(true).build());
+        when(repo.claimSomeMessageIds(any(), any(), any())).thenReturn(List.of(1, 2));
+
+        String lockId = releasingService.lockSomeEventsForStreaming();
+        releasingService.releaseAllLocks();
+
+        verify(repo).releaseLocks(lockId, List.of(1, 2));
+    }
+
+    @Test
+    public void testLocksAreNotReleasedWhenNotEnabled() throws Exception {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev = new EventLog(1, "type1", payloadString, null, now(), now(), "lock", now().plus(30, SECONDS), null);
+
+        service.sendEvents(singletonList(ev));
+        service.releaseAllLocks();
+
+        verify(repo, never()).releaseLocks(any(), any());
+    }
+
     @Test
     public void testWithMultipleEvents() throws JsonProcessingException {
         String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
@@ -262,6 +406,208 @@ public class EventTransmissionServiceTest {
         verifyNoMoreInteractions(repo);
     }
 
+    @Test
+    public void testPassthroughProducesSameEventAsParsing() throws JsonProcessingException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev = new EventLog(27, "type", payloadString, "XYZ", now(), now(), null, now().plus(5, MINUTES), "key");
+        EventTransmissionService passthroughService =
+                new EventTransmissionService(repo, publishingClient, mapper,
+                        EventTransmissionSettings.builder().eventBodyPassthrough(true).build());
+
+        service.sendEvents(singletonList(ev));
+        passthroughService.sendEvents(singletonList(ev));
+
+        List<String> events = publishingClient.getSentEvents("type");
+        assertThat(events, hasSize(2));
+        assertThat(mapper.readTree(events.get(1)), is(mapper.readTree(events.get(0))));
+    }
+
+    @Test
+    public void testCompressedEventBodyIsDecompressedForSending() throws JsonProcessingException {
+        EventBodyCompressor compressor = new EventBodyCompressor(Map.of("type", "{\"id\":1,\"code\":\"\"}".getBytes(UTF_8)));
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev = new EventLog(27, "type", null, null, now(), now(), null, now().plus(5, MINUTES), null);
+        ev.setEventBodyCompressed(compressor.compress("type", payloadString));
+        EventTransmissionService decompressingService =
+                new EventTransmissionService(repo, publishingClient, mapper,
+                        EventTransmissionSettings.builder().eventBodyCompressor(compressor).build());
+
+        decompressingService.sendEvents(singletonList(ev));
+
+        List<String> events = publishingClient.getSentEvents("type");
+        assertThat(events, hasSize(1));
+        assertThat(read(events.get(0), "$.id"), is(42));
+        assertThat(read(events.get(0), "$.code"), is("bla"));
+    }
+
+    @Test
+    public void testLockSizeIsTakenFromControllerWhichLearnsFromPublishing() throws JsonProcessingException {
+        AimdLockSizeController controller = new AimdLockSizeController(50, 10, 100, 5, Duration.ofMinutes(1));
+        EventTransmissionService adaptiveService = new EventTransmissionService(
+                repo, publishingClient, mapper, EventTransmissionSettings.builder().lockSizeController(controller).build());
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev = new EventLog(27, "type", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+
+        adaptiveService.lockSomeEvents();
+        verify(repo).claimSomeMessages(any(), any(), any(), eq(50));
+
+        adaptiveService.sendEvents(singletonList(ev));
+        adaptiveService.lockSomeEvents();
+        verify(repo).claimSomeMessages(any(), any(), any(), eq(55));
+    }
+
+    @Test
+    public void testLockSizeOfControllerIsUsedForStreamingAndLocksById() {
+        AimdLockSizeController controller = new AimdLockSizeController(50, 10, 100, 5, Duration.ofMinutes(1));
+        EventTransmissionService adaptiveService = new EventTransmissionService(
+                repo, publishingClient, mapper, EventTransmissionSettings.builder().lockSizeController(controller).build());
+        when(repo.streamByLockedByAndLockedUntilGreaterThan(any(), any())).thenReturn(Stream.empty());
+
+        String lockId = adaptiveService.lockSomeEventsForStreaming();
+        verify(repo).lockSomeMessages(eq(lockId), any(), any(), eq(50));
+
+        adaptiveService.sendLockedEvents(lockId);
+        verify(repo).isClaimLimitReached(0, 0L, 50);
+
+        assertThat(adaptiveService.effectiveLockSize(1000), is(50));
+        assertThat(service.effectiveLockSize(1000), is(1000));
+    }
+
+    @Test
+    public void testMetricsAreRecorded() throws JsonProcessingException {
+        EventTransmissionMetrics metrics = mock(EventTransmissionMetrics.class);
+        EventTransmissionService measuredService = new EventTransmissionService(
+                repo, publishingClient, mapper, EventTransmissionSettings.builder().metrics(metrics).build());
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type", payloadString, null, now().minus(1, MINUTES), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type", "[not json", null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev3 = new EventLog(3, "type", payloadString, null, now(), now(), null, now().plus(30, SECONDS), null);
+
+        measuredService.sendEvents(Arrays.asList(ev1, ev2, ev3));
+
+        verify(metrics).recordSerialization(eq("type"), any());
+        verify(metrics, Mockito.times(2)).recordSkippedEvent("type");
+        verify(metrics).recordPublishing(eq("type"), eq(1), Mockito.anyLong(), any());
+        ArgumentCaptor<Duration> age = ArgumentCaptor.forClass(Duration.class);
+        verify(metrics).recordSentEvent(eq("type"), age.capture());
+        assertThat(age.getValue().compareTo(Duration.ofMinutes(1)) >= 0, is(true));
+        verify(metrics).recordDeletion(eq(1), any());
+        verify(metrics, never()).recordFailedEvents(any(), Mockito.anyInt());
+    }
+
+    @Test
+    public void testPassthroughDoesNotParseEventBody() throws IOException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev = new EventLog(27, "type", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventTransmissionService passthroughService =
+                new EventTransmissionService(repo, publishingClient, mapper,
+                        EventTransmissionSettings.builder().eventBodyPassthrough(true).build());
+        Mockito.clearInvocations(mapper);
+
+        passthroughService.sendEvents(singletonList(ev));
+
+        verify(mapper, never()).readValue(eq(payloadString), anyLinkedHashmapTypeReference());
+        List<String> events = publishingClient.getSentEvents("type");
+        assertThat(events, hasSize(1));
+        assertThat(read(events.get(0), "$.id"), is(42));
+        assertThat(read(events.get(0), "$.metadata.eid"), is("00000000-0000-0000-0000-00000000001b"));
+    }
+
+    @Test
+    public void testPassthroughWithValidationSkipsInvalidEventBodies() throws JsonProcessingException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", "{\"broken\": ", null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type1", "[1, 2, 3]", null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev3 = new EventLog(3, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventTransmissionService validatingService =
+                new EventTransmissionService(repo, publishingClient, mapper,
+                        EventTransmissionSettings.builder().eventBodyPassthrough(true).eventBodyValidation(true).build());
+
+        validatingService.sendEvents(Arrays.asList(ev1, ev2, ev3));
+
+        List<String> type1Events = publishingClient.getSentEvents("type1");
+        assertThat(type1Events, hasSize(1));
+        assertThat(read(type1Events.get(0), "$.metadata.eid"), is("00000000-0000-0000-0000-000000000003"));
+
+        List<EventLog> deletedEvents = verifyDeletionAndGetAllDeletedEvents();
+        assertThat(deletedEvents, containsInAnyOrder(ev3));
+    }
+
+    @Test
+    public void testSendLockedEventsReadsFromStreamAndClosesIt() throws JsonProcessingException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type1", payloadString, null, now(), now(), "lock", now().plus(5, MINUTES), null);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        when(repo.streamByLockedByAndLockedUntilGreaterThan(eq("lock"), any()))
+                .thenReturn(Stream.of(ev1, ev2).onClose(() -> closed.set(true)));
+
+        service.sendLockedEvents("lock");
+
+        List<String> type1Events = publishingClient.getSentEvents("type1");
+        assertThat(type1Events, hasSize(2));
+        assertThat(closed.get(), is(true));
+        assertThat(verifyDeletionAndGetAllDeletedEvents(), containsInAnyOrder(ev1, ev2));
+    }
+
+    @Test
+    public void testConcurrentPublishingDoesNotWaitForOtherEventTypesButKeepsOrderPerType() throws JsonProcessingException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type2", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev3 = new EventLog(3, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        CountDownLatch type2Published = new CountDownLatch(1);
+        NakadiPublishingClient blockingClient = (eventType, nakadiEvents) -> {
+            if (eventType.equals("type1") && !type2Published.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("type1 was not published concurrently with type2");
+            }
+            publishingClient.publish(eventType, nakadiEvents);
+            if (eventType.equals("type2")) {
+                type2Published.countDown();
+            }
+        };
+        EventTransmissionService concurrentService =
+                new EventTransmissionService(repo, blockingClient, mapper,
+                        EventTransmissionSettings.builder().publishingConcurrency(2).build());
+
+        concurrentService.sendEvents(Arrays.asList(ev1, ev2, ev3));
+
+        List<String> type1Events = publishingClient.getSentEvents("type1");
+        assertThat(type1Events, hasSize(2));
+        assertThat(read(type1Events.get(0), "$.metadata.eid"), is("00000000-0000-0000-0000-000000000001"));
+        assertThat(read(type1Events.get(1), "$.metadata.eid"), is("00000000-0000-0000-0000-000000000003"));
+        assertThat(publishingClient.getSentEvents("type2"), hasSize(1));
+        assertThat(verifyDeletionAndGetAllDeletedEvents(), containsInAnyOrder(ev1, ev2, ev3));
+    }
+
+    @Test
+    public void testConcurrentPublishingDeletesEachBatchAsSoonAsItIsPublished() throws JsonProcessingException {
+        String payloadString = mapper.writeValueAsString(Fixture.mockPayload(42, "bla"));
+        EventLog ev1 = new EventLog(1, "type1", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        EventLog ev2 = new EventLog(2, "type2", payloadString, null, now(), now(), null, now().plus(5, MINUTES), null);
+        CountDownLatch type1Deleted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            type1Deleted.countDown();
+            return null;
+        }).when(repo).delete(singletonList(ev1));
+        NakadiPublishingClient blockingClient = (eventType, nakadiEvents) -> {
+            if (eventType.equals("type2") && !type1Deleted.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("type1 was not deleted before type2 was published");
+            }
+            publishingClient.publish(eventType, nakadiEvents);
+        };
+        EventTransmissionService concurrentService =
+                new EventTransmissionService(repo, blockingClient, mapper,
+                        EventTransmissionSettings.builder().publishingConcurrency(2).build());
+
+        concurrentService.sendEvents(Arrays.asList(ev1, ev2));
+        concurrentService.close();
+
+        assertThat(publishingClient.getSentEvents("type2"), hasSize(1));
+        verify(repo).delete(singletonList(ev1));
+        verify(repo).delete(singletonList(ev2));
+    }
+
     private TypeReference<LinkedHashMap<String, Object>> anyLinkedHashmapTypeReference() {
         return any();
     }